@@ -228,6 +228,16 @@ export class CameraComponent implements OnInit, OnDestroy {
   private mediaRecorder: MediaRecorder | null = null;
   private recordingInterval: any;
   private recordedChunks: Blob[] = [];
+  // Streamed recording: chunks are appended on the server while recording
+  private recordingId: string | null = null;
+  private recordingOffset: number = 0;
+  private recordingUpload: Promise<void> = Promise.resolve();
+  private readonly recordingTimesliceMs: number = 2000;
+  // Frame streaming settings; the server adjusts them with STREAM_PROFILE commands
+  private streamIntervalMs: number = 200;
+  private streamWidth: number = 480;
+  private streamQuality: number = 0.5;
+  private streamPaused: boolean = false;
   private subscriptions: Subscription[] = [];
 
   // New state for device selection and viewing
@@ -279,7 +289,7 @@ export class CameraComponent implements OnInit, OnDestroy {
     this.subscriptions.push(
       this.cameraService.cameraCommand$.subscribe(commandPayload => {
         if (this.isCameraActive && commandPayload?.command) {
-          this.handleRemoteCommand(commandPayload.command);
+          this.handleRemoteCommand(commandPayload);
         }
       })
     );
@@ -374,11 +384,16 @@ export class CameraComponent implements OnInit, OnDestroy {
           };
           
           this.cameraService.setCurrentSession(this.currentSession);
-          this.cameraService.subscribeToSession(response.sessionId);
+          this.cameraService.subscribeToSession(response.sessionId, false);
           this.isCameraActive = true;
           this.isViewing = false;
           this.latestFrameSrc = null;
           this.latestFrameSafeUrl = null;
+          // New sessions start at the server's STANDARD profile
+          this.streamIntervalMs = 200;
+          this.streamWidth = 480;
+          this.streamQuality = 0.5;
+          this.streamPaused = false;
           this.startFrameStreaming();
         },
         error: (error) => {
@@ -466,7 +481,8 @@ export class CameraComponent implements OnInit, OnDestroy {
     }
   }
 
-  private handleRemoteCommand(command: string): void {
+  private handleRemoteCommand(payload: any): void {
+    const command: string = payload.command;
     console.log(`Received remote command: ${command}`);
     switch (command) {
       case 'TOGGLE_RECORDING':
@@ -475,9 +491,27 @@ export class CameraComponent implements OnInit, OnDestroy {
       case 'TAKE_SCREENSHOT':
         this.takeScreenshot();
         break;
+      case 'STREAM_PROFILE':
+        // Server-side rate control hint based on viewer count and relay load
+        this.applyStreamProfile(payload);
+        break;
+      case 'PAUSE_STREAM':
+        // Nobody is watching this session; stop uploading frames until a viewer joins
+        this.streamPaused = true;
+        break;
+      case 'RESUME_STREAM':
+        this.applyStreamProfile(payload);
+        this.streamPaused = false;
+        break;
     }
   }
   
+  private applyStreamProfile(profile: any): void {
+    this.streamIntervalMs = Math.round(1000 / profile.fps);
+    this.streamWidth = profile.width;
+    this.streamQuality = profile.quality;
+  }
+
   private stopMediaStream(): void {
     if (this.mediaStream) {
       this.mediaStream.getTracks().forEach(track => track.stop());
@@ -494,20 +528,20 @@ export class CameraComponent implements OnInit, OnDestroy {
       if (!this.isCameraActive || !this.videoElement?.nativeElement) return;
       
       const video = this.videoElement.nativeElement;
-      if (video.videoWidth === 0 || video.videoHeight === 0) {
-        setTimeout(streamFrame, 200);
+      if (this.streamPaused || video.videoWidth === 0 || video.videoHeight === 0) {
+        setTimeout(streamFrame, this.streamIntervalMs);
         return;
       }
       
       // Downscale to reduce payload size for SockJS/STOMP
-      const targetWidth = 480;
+      const targetWidth = this.streamWidth;
       const scale = targetWidth / video.videoWidth;
       const targetHeight = Math.round(video.videoHeight * scale);
       canvas.width = targetWidth;
       canvas.height = targetHeight;
       
       ctx.drawImage(video, 0, 0, targetWidth, targetHeight);
-      const frameData = canvas.toDataURL('image/jpeg', 0.5);
+      const frameData = canvas.toDataURL('image/jpeg', this.streamQuality);
       
       if (this.currentSession) {
         this.cameraService.sendCameraFrame(this.currentSession.sessionId, {
@@ -517,7 +551,7 @@ export class CameraComponent implements OnInit, OnDestroy {
       }
       
       if (this.isCameraActive) {
-        setTimeout(streamFrame, 200); // ~5 FPS
+        setTimeout(streamFrame, this.streamIntervalMs);
       }
     };
     
@@ -545,15 +579,26 @@ export class CameraComponent implements OnInit, OnDestroy {
     if (!this.mediaStream) return;
     
     this.recordedChunks = [];
+    this.recordingId = null;
+    this.recordingOffset = 0;
     
     try {
-      this.mediaRecorder = new MediaRecorder(this.mediaStream, {
+      const recorder = new MediaRecorder(this.mediaStream, {
         mimeType: 'video/webm;codecs=vp9'
       });
+      this.mediaRecorder = recorder;
+
+      // Stream the recording to the server as it is made. If that cannot start, chunks
+      // are kept in memory and uploaded when recording stops.
+      this.recordingUpload = this.currentSession
+        ? this.cameraService.startRecording(this.deviceId, this.currentSession.sessionId, 'video/webm')
+            .then((response) => { this.recordingId = response.recordingId; })
+            .catch((error) => { console.error('Error starting streamed recording:', error); })
+        : Promise.resolve();
       
       this.mediaRecorder.ondataavailable = (event) => {
         if (event.data.size > 0) {
-          this.recordedChunks.push(event.data);
+          this.queueRecordingChunk(recorder, event.data);
         }
       };
       
@@ -561,7 +606,7 @@ export class CameraComponent implements OnInit, OnDestroy {
         this.saveRecording();
       };
       
-      this.mediaRecorder.start();
+      this.mediaRecorder.start(this.recordingTimesliceMs);
       this.isRecording = true;
       this.recordingTime = 0;
       
@@ -587,25 +632,85 @@ export class CameraComponent implements OnInit, OnDestroy {
     }
   }
   
+  private queueRecordingChunk(recorder: MediaRecorder, chunk: Blob): void {
+    // Chained so chunks reach the server in order, after the recording has started
+    this.recordingUpload = this.recordingUpload.then(async () => {
+      // Chunks of a recorder that was replaced belong to a recording that is gone
+      if (recorder !== this.mediaRecorder) {
+        return;
+      }
+      if (!this.recordingId) {
+        this.recordedChunks.push(chunk);
+        return;
+      }
+      // Keep retrying this chunk: later chunks are useless without it
+      while (this.recordingId && recorder === this.mediaRecorder) {
+        try {
+          this.recordingOffset = await this.cameraService.appendRecordingChunk(this.recordingId, chunk, this.recordingOffset);
+          return;
+        } catch (error: any) {
+          if (error?.status === 404) {
+            // The server already finished the recording (e.g. after a long outage). The
+            // rest of this recorder's output has no WebM header, so start a new one.
+            console.error('Streamed recording was closed by the server, starting a new recording');
+            this.restartRecording();
+            return;
+          }
+          console.error('Error streaming recording chunk, retrying:', error);
+          await new Promise(resolve => setTimeout(resolve, 5000));
+        }
+      }
+    });
+  }
+
+  /**
+   * Discards the current recorder's remaining output and, unless recording was already
+   * stopped, records into a new recording.
+   */
+  private restartRecording(): void {
+    const recorder = this.mediaRecorder;
+    this.mediaRecorder = null;
+    this.recordingId = null;
+    if (!recorder || !this.isRecording) return;
+    recorder.ondataavailable = null;
+    recorder.onstop = null;
+    recorder.stop();
+    this.isRecording = false;
+    if (this.recordingInterval) {
+      clearInterval(this.recordingInterval);
+      this.recordingInterval = null;
+    }
+    this.startRecording();
+  }
+
   private saveRecording(): void {
-    if (this.recordedChunks.length === 0 || !this.currentSession) return;
-    
-    const blob = new Blob(this.recordedChunks, { type: 'video/webm' });
-    const file = new File([blob], `recording_${Date.now()}.webm`, { type: 'video/webm' });
-    
-    this.cameraService.uploadVideo(file, this.deviceId, this.currentSession.sessionId).subscribe({
-      next: (response) => {
+    if (!this.currentSession) return;
+    const sessionId = this.currentSession.sessionId;
+
+    this.recordingUpload
+      .then(async () => {
+        let response: any;
+        if (this.recordingId) {
+          response = await this.cameraService.finishRecording(this.recordingId);
+          this.recordingId = null;
+        } else if (this.recordedChunks.length > 0) {
+          const blob = new Blob(this.recordedChunks, { type: 'video/webm' });
+          const file = new File([blob], `recording_${Date.now()}.webm`, { type: 'video/webm' });
+          this.recordedChunks = [];
+          response = await this.cameraService.uploadVideoResumable(file, this.deviceId, sessionId);
+        } else {
+          return;
+        }
         console.log('Video uploaded successfully:', response);
         this.recentMedia.unshift({
           type: 'video',
           fileName: response.fileName,
           url: this.cameraService.downloadVideo(response.fileName)
         });
-      },
-      error: (error) => {
+      })
+      .catch((error) => {
         console.error('Error uploading video:', error);
-      }
-    });
+      });
     
     this.recordingTime = 0;
   }
@@ -312,24 +312,15 @@ export class DashboardComponent implements OnInit, OnDestroy {
       }
     });
     
-    // Load total videos count
-    this.cameraService.getAllVideos().subscribe({
-      next: (videos) => {
-        this.totalVideos = videos.length;
+    // Load media totals
+    this.cameraService.getMediaCounts().subscribe({
+      next: (counts) => {
+        this.totalVideos = counts.videos;
+        this.totalScreenshots = counts.screenshots;
       },
       error: (error) => {
-        console.error('Error loading videos:', error);
+        console.error('Error loading media counts:', error);
         this.totalVideos = 0;
-      }
-    });
-    
-    // Load total screenshots count
-    this.cameraService.getAllScreenshots().subscribe({
-      next: (screenshots) => {
-        this.totalScreenshots = screenshots.length;
-      },
-      error: (error) => {
-        console.error('Error loading screenshots:', error);
         this.totalScreenshots = 0;
       }
     });
@@ -65,8 +65,9 @@ import { CameraService, VideoRecord, Screenshot } from '../../services/camera.se
                   <div class="col-lg-4 col-md-6" *ngFor="let video of filteredVideos">
                     <div class="card h-100">
                       <div class="video-wrapper">
-                        <video class="card-img-top video-thumbnail" controls preload="metadata">
-                          <source [src]="getVideoUrl(video.fileName)" type="video/webm">
+                        <video class="card-img-top video-thumbnail" controls [attr.preload]="video.hasThumbnail ? 'none' : 'metadata'"
+                               [poster]="video.hasThumbnail ? getThumbnailUrl(video.id, 'video') : ''">
+                          <source [src]="getVideoUrl(video.fileName)" [type]="video.mimeType || 'video/webm'">
                           Your browser does not support the video tag.
                         </video>
                       </div>
@@ -89,7 +90,7 @@ import { CameraService, VideoRecord, Screenshot } from '../../services/camera.se
                       </div>
                       <div class="card-footer">
                         <div class="d-grid gap-2">
-                          <a [href]="getVideoUrl(video.fileName)" 
+                          <a [href]="getVideoUrl(video.fileName) + '?download=true'" 
                              download 
                              class="btn btn-primary btn-sm">
                             <i class="bi bi-download"></i> Download
@@ -99,6 +100,9 @@ import { CameraService, VideoRecord, Screenshot } from '../../services/camera.se
                     </div>
                   </div>
                 </div>
+                <div class="text-center mt-3" *ngIf="videosCursor">
+                  <button class="btn btn-outline-primary" (click)="loadMoreVideos()">Load more videos</button>
+                </div>
               </div>
               
               <!-- Screenshots Tab -->
@@ -113,7 +117,8 @@ import { CameraService, VideoRecord, Screenshot } from '../../services/camera.se
                   <div class="col-lg-3 col-md-4 col-sm-6" *ngFor="let screenshot of filteredScreenshots">
                     <div class="card h-100">
                       <div class="image-wrapper">
-                        <img [src]="getScreenshotUrl(screenshot.fileName)" 
+                        <img [src]="screenshot.hasThumbnail ? getThumbnailUrl(screenshot.id, 'screenshot') : getScreenshotUrl(screenshot.fileName)" 
+                             loading="lazy"
                              class="card-img-top screenshot-thumbnail"
                              [alt]="screenshot.fileName"
                              (click)="openImageModal(screenshot)">
@@ -136,7 +141,7 @@ import { CameraService, VideoRecord, Screenshot } from '../../services/camera.se
                         </div>
                       </div>
                       <div class="card-footer p-2">
-                        <a [href]="getScreenshotUrl(screenshot.fileName)" 
+                        <a [href]="getScreenshotUrl(screenshot.fileName) + '?download=true'" 
                            download 
                            class="btn btn-primary btn-sm w-100">
                           <i class="bi bi-download"></i> Download
@@ -145,6 +150,9 @@ import { CameraService, VideoRecord, Screenshot } from '../../services/camera.se
                     </div>
                   </div>
                 </div>
+                <div class="text-center mt-3" *ngIf="screenshotsCursor">
+                  <button class="btn btn-outline-primary" (click)="loadMoreScreenshots()">Load more screenshots</button>
+                </div>
               </div>
             </div>
           </div>
@@ -173,7 +181,7 @@ import { CameraService, VideoRecord, Screenshot } from '../../services/camera.se
             </div>
           </div>
           <div class="modal-footer">
-            <a [href]="getScreenshotUrl(selectedImage.fileName)" 
+            <a [href]="getScreenshotUrl(selectedImage.fileName) + '?download=true'" 
                download 
                class="btn btn-primary">
               <i class="bi bi-download"></i> Download
@@ -247,6 +255,9 @@ export class MediaLibraryComponent implements OnInit {
   uniqueDevices: string[] = [];
   selectedDevice: string = '';
   selectedImage: Screenshot | null = null;
+  // Continuation of each listing; null once everything is loaded
+  videosCursor: string | null = null;
+  screenshotsCursor: string | null = null;
   
   constructor(private cameraService: CameraService) {}
   
@@ -255,10 +266,19 @@ export class MediaLibraryComponent implements OnInit {
   }
   
   refreshMedia(): void {
-    // Load videos
-    this.cameraService.getAllVideos().subscribe({
-      next: (videos) => {
-        this.videos = videos;
+    this.videos = [];
+    this.screenshots = [];
+    this.videosCursor = null;
+    this.screenshotsCursor = null;
+    this.loadMoreVideos();
+    this.loadMoreScreenshots();
+  }
+
+  loadMoreVideos(): void {
+    this.cameraService.getVideos(this.videosCursor).subscribe({
+      next: (page) => {
+        this.videos = this.videos.concat(page.items);
+        this.videosCursor = page.nextCursor;
         this.updateUniqueDevices();
         this.applyFilter();
       },
@@ -266,11 +286,13 @@ export class MediaLibraryComponent implements OnInit {
         console.error('Error loading videos:', error);
       }
     });
-    
-    // Load screenshots
-    this.cameraService.getAllScreenshots().subscribe({
-      next: (screenshots) => {
-        this.screenshots = screenshots;
+  }
+
+  loadMoreScreenshots(): void {
+    this.cameraService.getScreenshots(this.screenshotsCursor).subscribe({
+      next: (page) => {
+        this.screenshots = this.screenshots.concat(page.items);
+        this.screenshotsCursor = page.nextCursor;
         this.updateUniqueDevices();
         this.applyFilter();
       },
@@ -309,6 +331,10 @@ export class MediaLibraryComponent implements OnInit {
   getScreenshotUrl(fileName: string): string {
     return this.cameraService.downloadScreenshot(fileName);
   }
+
+  getThumbnailUrl(id: number, type: 'video' | 'screenshot'): string {
+    return this.cameraService.thumbnailUrl(id, type);
+  }
   
   formatFileSize(bytes: number): string {
     if (bytes === 0) return '0 Bytes';
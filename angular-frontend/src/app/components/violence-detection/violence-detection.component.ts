@@ -1,5 +1,5 @@
 import { Component, OnInit } from '@angular/core';
-import { HttpClient } from '@angular/common/http';
+import { HttpClient, HttpParams } from '@angular/common/http';
 
 @Component({
   selector: 'app-violence-detection',
@@ -9,12 +9,46 @@ import { HttpClient } from '@angular/common/http';
 export class ViolenceDetectionComponent implements OnInit {
 
   videos: any[] = [];
+  deviceId = '';
+  // Continuation of the results listing; null once everything is loaded
+  nextCursor: string | null = null;
 
   constructor(private http: HttpClient) { }
 
   ngOnInit(): void {
-    this.http.get<any[]>('/api/violence-detection/results').subscribe(data => {
-      this.videos = data;
+    this.load();
+  }
+
+  filterByDevice(deviceId: string): void {
+    this.deviceId = deviceId.trim();
+    this.videos = [];
+    this.nextCursor = null;
+    this.load();
+  }
+
+  load(): void {
+    let params = new HttpParams();
+    if (this.deviceId) {
+      params = params.set('deviceId', this.deviceId);
+    }
+    if (this.nextCursor) {
+      params = params.set('cursor', this.nextCursor);
+    }
+    this.http.get<any[]>('/api/violence-detection/results', { params, observe: 'response' }).subscribe(response => {
+      this.videos = this.videos.concat(response.body ?? []);
+      this.nextCursor = response.headers.get('X-Next-Cursor');
     });
   }
+
+  seek(player: HTMLVideoElement, startMs: number): void {
+    player.currentTime = startMs / 1000;
+    player.play();
+  }
+
+  formatTime(ms: number): string {
+    const totalSeconds = Math.floor(ms / 1000);
+    const minutes = Math.floor(totalSeconds / 60);
+    const seconds = totalSeconds % 60;
+    return `${minutes}:${seconds.toString().padStart(2, '0')}`;
+  }
 }
@@ -1,6 +1,6 @@
 import { Injectable } from '@angular/core';
-import { HttpClient } from '@angular/common/http';
-import { BehaviorSubject, Observable } from 'rxjs';
+import { HttpClient, HttpParams } from '@angular/common/http';
+import { BehaviorSubject, Observable, firstValueFrom, map } from 'rxjs';
 import { Client, StompSubscription } from '@stomp/stompjs';
 import * as SockJS from 'sockjs-client';
 
@@ -18,20 +18,21 @@ export interface CameraSession {
 export interface VideoRecord {
   id: number;
   fileName: string;
-  filePath: string;
   fileSize: number;
   duration?: number;
   recordedAt: string;
   deviceId: string;
   sessionId: string;
   mimeType: string;
-  thumbnailPath?: string;
+  hasThumbnail?: boolean;
+  violenceDetected?: boolean | null;
+  motionScore?: number | null;
+  inProgress?: boolean | null;
 }
 
 export interface Screenshot {
   id: number;
   fileName: string;
-  filePath: string;
   fileSize: number;
   capturedAt: string;
   deviceId: string;
@@ -39,6 +40,13 @@ export interface Screenshot {
   mimeType: string;
   width?: number;
   height?: number;
+  hasThumbnail?: boolean;
+}
+
+export interface MediaPage<T> {
+  items: T[];
+  // Pass back to fetch the next page; null on the last page
+  nextCursor: string | null;
 }
 
 @Injectable({
@@ -147,7 +155,9 @@ export class CameraService {
     });
   }
 
-  async subscribeToSession(sessionId: string): Promise<void> {
+  // Cameras pass includeFrames = false: they only need commands, and a frame
+  // subscription would count them as a viewer of their own stream.
+  async subscribeToSession(sessionId: string, includeFrames: boolean = true): Promise<void> {
     await this.ensureConnected();
 
     if (!this.stompClient?.connected) {
@@ -165,10 +175,12 @@ export class CameraService {
     this.cameraCommandSubject.next(null);
 
     // Subscribe to frame topic
-    this.currentFrameSubscription = this.stompClient.subscribe(`/topic/camera/${sessionId}`, (message) => {
-      const frameData = JSON.parse(message.body);
-      this.cameraFrameSubject.next(frameData);
-    });
+    if (includeFrames) {
+      this.currentFrameSubscription = this.stompClient.subscribe(`/topic/camera/${sessionId}`, (message) => {
+        const frameData = JSON.parse(message.body);
+        this.cameraFrameSubject.next(frameData);
+      });
+    }
 
     // Subscribe to command topic
     this.currentCommandSubscription = this.stompClient.subscribe(`/topic/camera/command/${sessionId}`, (message) => {
@@ -214,6 +226,79 @@ export class CameraService {
     return this.http.post(`${this.apiUrl}/upload-video`, formData);
   }
 
+  /**
+   * Uploads a video in chunks through /uploads. A failed chunk is retried from the
+   * offset the server last acknowledged, so a dropped connection only costs the chunk
+   * in flight.
+   */
+  async uploadVideoResumable(file: File, deviceId: string, sessionId: string): Promise<any> {
+    const chunkSize = 1024 * 1024;
+
+    const started: any = await firstValueFrom(this.http.post(`${this.apiUrl}/uploads`, null, {
+      params: { deviceId, sessionId, fileName: file.name, contentType: file.type, totalSize: file.size }
+    }));
+    const url = `${this.apiUrl}/uploads/${started.uploadId}`;
+
+    let offset = 0;
+    while (offset < file.size) {
+      offset = await this.putChunk(url, file.slice(offset, Math.min(offset + chunkSize, file.size)), offset);
+    }
+
+    return firstValueFrom(this.http.post(`${url}/complete`, null));
+  }
+
+  /** Starts a recording whose MediaRecorder chunks are streamed with appendRecordingChunk. */
+  startRecording(deviceId: string, sessionId: string, contentType: string): Promise<any> {
+    return firstValueFrom(this.http.post(`${this.apiUrl}/recordings`, null, {
+      params: { deviceId, sessionId, contentType }
+    }));
+  }
+
+  /** Appends a chunk that starts at byte `offset` of the recording; resolves to the new size. */
+  appendRecordingChunk(recordingId: string, chunk: Blob, offset: number): Promise<number> {
+    return this.putChunk(`${this.apiUrl}/recordings/${recordingId}`, chunk, offset);
+  }
+
+  finishRecording(recordingId: string): Promise<any> {
+    return firstValueFrom(this.http.post(`${this.apiUrl}/recordings/${recordingId}/finish`, null));
+  }
+
+  /**
+   * Makes sure `blob`, which starts at byte `base` of the stream at `url`, is stored on
+   * the server. Resends from the server's offset after failures; resolves to the new offset.
+   */
+  private async putChunk(url: string, blob: Blob, base: number): Promise<number> {
+    const maxRetries = 5;
+    let offset = base;
+    let failures = 0;
+    while (offset < base + blob.size) {
+      try {
+        const status: any = await firstValueFrom(this.http.put(url, blob.slice(offset - base), {
+          params: { offset },
+          headers: { 'Content-Type': 'application/octet-stream' }
+        }));
+        offset = status.offset;
+        failures = 0;
+      } catch (error: any) {
+        if (error?.status === 409 && error.error?.offset !== undefined) {
+          offset = error.error.offset;
+        } else {
+          if (++failures > maxRetries) {
+            throw error;
+          }
+          await new Promise(resolve => setTimeout(resolve, 1000 * failures));
+          // Resume from whatever the server actually stored
+          const status: any = await firstValueFrom(this.http.get(url));
+          offset = status.offset;
+        }
+        if (offset < base) {
+          throw new Error(`Server is missing data before offset ${base}`);
+        }
+      }
+    }
+    return offset;
+  }
+
   uploadScreenshot(file: File, deviceId: string, sessionId: string): Observable<any> {
     const formData = new FormData();
     formData.append('file', file);
@@ -227,12 +312,29 @@ export class CameraService {
     return this.http.get<CameraSession[]>(`${this.apiUrl}/active-sessions`);
   }
 
-  getAllVideos(): Observable<VideoRecord[]> {
-    return this.http.get<VideoRecord[]>(`${this.apiUrl}/videos`);
+  getVideos(cursor?: string | null, limit = 50): Observable<MediaPage<VideoRecord>> {
+    return this.getPage<VideoRecord>(`${this.apiUrl}/videos`, cursor, limit);
   }
 
-  getAllScreenshots(): Observable<Screenshot[]> {
-    return this.http.get<Screenshot[]>(`${this.apiUrl}/screenshots`);
+  getScreenshots(cursor?: string | null, limit = 50): Observable<MediaPage<Screenshot>> {
+    return this.getPage<Screenshot>(`${this.apiUrl}/screenshots`, cursor, limit);
+  }
+
+  getMediaCounts(): Observable<{ videos: number; screenshots: number }> {
+    return this.http.get<{ videos: number; screenshots: number }>(`${this.apiUrl}/media-counts`);
+  }
+
+  private getPage<T>(url: string, cursor: string | null | undefined, limit: number): Observable<MediaPage<T>> {
+    let params = new HttpParams().set('limit', limit);
+    if (cursor) {
+      params = params.set('cursor', cursor);
+    }
+    return this.http.get<T[]>(url, { params, observe: 'response' }).pipe(
+      map(response => ({
+        items: response.body ?? [],
+        nextCursor: response.headers.get('X-Next-Cursor')
+      }))
+    );
   }
 
   getVideosByDevice(deviceId: string): Observable<VideoRecord[]> {
@@ -255,6 +357,10 @@ export class CameraService {
     return `${this.apiUrl}/download/screenshot/${filename}`;
   }
 
+  thumbnailUrl(id: number, type: 'video' | 'screenshot'): string {
+    return `${this.apiUrl}/download/thumbnail/${id}?type=${type}`;
+  }
+
   setCurrentSession(session: CameraSession | null): void {
     this.currentSessionSubject.next(session);
   }
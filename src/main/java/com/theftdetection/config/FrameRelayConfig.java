@@ -0,0 +1,50 @@
+package com.theftdetection.config;
+
+import com.theftdetection.websocket.CameraFrameRelayHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+@Configuration
+@EnableWebSocket
+public class FrameRelayConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private CameraFrameRelayHandler frameRelayHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // Plain WebSocket (no SockJS): frames travel as binary messages, not base64 text
+        registry.addHandler(frameRelayHandler, "/camera-relay")
+                .setAllowedOriginPatterns("*");
+    }
+
+    /**
+     * Runs viewer socket writes for both relay paths. Each viewer has at most one write
+     * scheduled at a time, so the queue is bounded by the number of viewers.
+     * Static because the relay handlers that use it are injected into this class.
+     */
+    @Bean
+    public static ThreadPoolTaskExecutor frameRelayExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("frame-relay-");
+        executor.setDaemon(true);
+        return executor;
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        // Same ceiling as the STOMP message size limit; the container default is only 8KB
+        container.setMaxBinaryMessageBufferSize(256 * 1024);
+        return container;
+    }
+}
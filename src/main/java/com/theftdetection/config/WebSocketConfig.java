@@ -1,5 +1,7 @@
 package com.theftdetection.config;
 
+import com.theftdetection.websocket.LatestFrameDecoratorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
@@ -11,6 +13,9 @@ import org.springframework.web.socket.config.annotation.WebSocketTransportRegist
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private LatestFrameDecoratorFactory latestFrameDecoratorFactory;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic", "/queue");
@@ -35,5 +40,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.setMessageSizeLimit(256 * 1024); // 256KB per message
         registry.setSendBufferSizeLimit(512 * 1024); // 512KB per session buffer
         registry.setSendTimeLimit(20_000); // 20s
+        // Camera frames bypass the buffer above: only the newest pending frame is kept per viewer
+        registry.addDecoratorFactory(latestFrameDecoratorFactory);
     }
 }
\ No newline at end of file
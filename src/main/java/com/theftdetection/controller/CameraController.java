@@ -1,13 +1,20 @@
 package com.theftdetection.controller;
 
+import com.theftdetection.dto.ScreenshotSummary;
+import com.theftdetection.dto.SessionView;
+import com.theftdetection.dto.VideoSummary;
 import com.theftdetection.entity.CameraSession;
 import com.theftdetection.entity.VideoRecord;
 import com.theftdetection.entity.Screenshot;
 import com.theftdetection.service.CameraStreamingService;
+import com.theftdetection.service.ChunkedUploadService;
+import com.theftdetection.service.MediaCursor;
+import com.theftdetection.service.RecordingService;
+import com.theftdetection.service.ThumbnailService;
+import com.theftdetection.websocket.FrameRelayStats;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -16,8 +23,9 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.theftdetection.entity.User;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
@@ -27,12 +35,27 @@ import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/camera")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = CursorPages.NEXT_CURSOR_HEADER)
 public class CameraController {
 
     @Autowired
     private CameraStreamingService cameraService;
 
+    @Autowired
+    private FrameRelayStats relayStats;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private RecordingService recordingService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
     @PostMapping("/start-session")
     public ResponseEntity<Map<String, Object>> startSession(
             @RequestParam String deviceId,
@@ -115,78 +138,321 @@ public class CameraController {
         }
     }
 
+    @PostMapping("/uploads")
+    public ResponseEntity<Map<String, Object>> startUpload(
+            @RequestParam("deviceId") String deviceId,
+            @RequestParam("sessionId") String sessionId,
+            @RequestParam(value = "fileName", required = false) String fileName,
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @RequestParam(value = "totalSize", required = false) Long totalSize) {
+
+        try {
+            ChunkedUploadService.Upload upload = chunkedUploadService.start(deviceId, sessionId, fileName, contentType, totalSize);
+            return ResponseEntity.ok(uploadStatus(upload));
+        } catch (IOException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to start upload: " + e.getMessage());
+
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @PutMapping("/uploads/{uploadId}")
+    public ResponseEntity<Map<String, Object>> appendUploadChunk(
+            @PathVariable String uploadId,
+            @RequestParam("offset") long offset,
+            HttpServletRequest request) {
+
+        Optional<ChunkedUploadService.Upload> upload = chunkedUploadService.get(uploadId);
+        if (upload.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            chunkedUploadService.append(upload.get(), offset, request.getInputStream());
+            return ResponseEntity.ok(uploadStatus(upload.get()));
+        } catch (ChunkedUploadService.OffsetMismatchException e) {
+            // The client resumes from the returned offset
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(uploadStatus(upload.get()));
+        } catch (IOException e) {
+            Map<String, Object> response = uploadStatus(upload.get());
+            response.put("success", false);
+            response.put("message", "Failed to write chunk: " + e.getMessage());
+
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<Map<String, Object>> getUploadStatus(@PathVariable String uploadId) {
+        return chunkedUploadService.get(uploadId)
+                .map(upload -> ResponseEntity.ok(uploadStatus(upload)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<Map<String, Object>> completeUpload(@PathVariable String uploadId) {
+        Optional<ChunkedUploadService.Upload> upload = chunkedUploadService.get(uploadId);
+        if (upload.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            VideoRecord videoRecord = chunkedUploadService.complete(upload.get());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("videoId", videoRecord.getId());
+            response.put("fileName", videoRecord.getFileName());
+            response.put("message", "Video uploaded successfully");
+
+            return ResponseEntity.ok(response);
+        } catch (ChunkedUploadService.OffsetMismatchException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(uploadStatus(upload.get()));
+        } catch (IOException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to complete upload: " + e.getMessage());
+
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Map<String, Object>> abortUpload(@PathVariable String uploadId) throws IOException {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", chunkedUploadService.abort(uploadId));
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/recordings")
+    public ResponseEntity<Map<String, Object>> startRecording(
+            @RequestParam("deviceId") String deviceId,
+            @RequestParam("sessionId") String sessionId,
+            @RequestParam(value = "contentType", required = false) String contentType) {
+
+        try {
+            RecordingService.Recording recording = recordingService.start(deviceId, sessionId, contentType);
+            return ResponseEntity.ok(recordingStatus(recording));
+        } catch (IOException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to start recording: " + e.getMessage());
+
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @PutMapping("/recordings/{recordingId}")
+    public ResponseEntity<Map<String, Object>> appendRecordingChunk(
+            @PathVariable String recordingId,
+            @RequestParam("offset") long offset,
+            HttpServletRequest request) {
+
+        Optional<RecordingService.Recording> recording = recordingService.get(recordingId);
+        if (recording.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            recordingService.append(recording.get(), offset, request.getInputStream());
+            return ResponseEntity.ok(recordingStatus(recording.get()));
+        } catch (ChunkedUploadService.OffsetMismatchException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(recordingStatus(recording.get()));
+        } catch (IOException e) {
+            Map<String, Object> response = recordingStatus(recording.get());
+            response.put("success", false);
+            response.put("message", "Failed to write chunk: " + e.getMessage());
+
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @GetMapping("/recordings/{recordingId}")
+    public ResponseEntity<Map<String, Object>> getRecordingStatus(@PathVariable String recordingId) {
+        return recordingService.get(recordingId)
+                .map(recording -> ResponseEntity.ok(recordingStatus(recording)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/recordings/{recordingId}/finish")
+    public ResponseEntity<Map<String, Object>> finishRecording(@PathVariable String recordingId) throws IOException {
+        Optional<RecordingService.Recording> recording = recordingService.get(recordingId);
+        if (recording.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        recordingService.finish(recording.get());
+
+        Map<String, Object> response = recordingStatus(recording.get());
+        response.put("success", true);
+        response.put("message", "Recording saved successfully");
+        return ResponseEntity.ok(response);
+    }
+
+    private static Map<String, Object> recordingStatus(RecordingService.Recording recording) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("recordingId", recording.getId());
+        status.put("videoId", recording.getVideoId());
+        status.put("fileName", recording.getFileName());
+        status.put("offset", recording.getOffset());
+        return status;
+    }
+
+    private static Map<String, Object> uploadStatus(ChunkedUploadService.Upload upload) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("uploadId", upload.getId());
+        status.put("offset", upload.getOffset());
+        status.put("totalSize", upload.getTotalSize());
+        return status;
+    }
+
     @GetMapping("/active-sessions")
-    public ResponseEntity<List<CameraSession>> getActiveSessions() {
-        List<CameraSession> sessions = cameraService.getActiveSessions();
+    public ResponseEntity<List<SessionView>> getActiveSessions() {
+        List<SessionView> sessions = cameraService.getActiveSessions();
         return ResponseEntity.ok(sessions);
     }
 
+    @GetMapping("/relay-stats")
+    public ResponseEntity<Map<String, FrameRelayStats.SessionStats>> getRelayStats() {
+        return ResponseEntity.ok(relayStats.getAll());
+    }
+
+    @GetMapping("/relay-stats/{sessionId}")
+    public ResponseEntity<FrameRelayStats.SessionStats> getRelayStats(@PathVariable String sessionId) {
+        FrameRelayStats.SessionStats stats = relayStats.get(sessionId);
+        return stats != null ? ResponseEntity.ok(stats) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Videos, newest first, {@code limit} at a time. When more exist the response carries
+     * an {@code X-Next-Cursor} header; pass it back as {@code cursor} for the next page.
+     */
     @GetMapping("/videos")
-    public ResponseEntity<List<VideoRecord>> getAllVideos() {
-        List<VideoRecord> videos = cameraService.getAllVideos();
-        return ResponseEntity.ok(videos);
+    public ResponseEntity<List<VideoSummary>> getAllVideos(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + CursorPages.DEFAULT_PAGE_SIZE) int limit) {
+        return CursorPages.page(cursor, limit, cameraService::getVideos,
+                video -> new MediaCursor(video.recordedAt(), video.id()));
     }
 
     @GetMapping("/videos/user")
-    public ResponseEntity<List<VideoRecord>> getVideosByUser(@AuthenticationPrincipal User user) {
-        List<VideoRecord> videos = cameraService.getVideosByUser(user.getUsername());
-        return ResponseEntity.ok(videos);
+    public ResponseEntity<List<VideoSummary>> getVideosByUser(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + CursorPages.DEFAULT_PAGE_SIZE) int limit) {
+        return CursorPages.page(cursor, limit, (after, size) -> cameraService.getVideosByUser(user.getUsername(), after, size),
+                video -> new MediaCursor(video.recordedAt(), video.id()));
     }
 
+    /** Screenshots, newest first; paged like {@link #getAllVideos}. */
     @GetMapping("/screenshots")
-    public ResponseEntity<List<Screenshot>> getAllScreenshots() {
-        List<Screenshot> screenshots = cameraService.getAllScreenshots();
-        return ResponseEntity.ok(screenshots);
+    public ResponseEntity<List<ScreenshotSummary>> getAllScreenshots(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + CursorPages.DEFAULT_PAGE_SIZE) int limit) {
+        return CursorPages.page(cursor, limit, cameraService::getScreenshots,
+                screenshot -> new MediaCursor(screenshot.capturedAt(), screenshot.id()));
     }
 
     @GetMapping("/screenshots/user")
-    public ResponseEntity<List<Screenshot>> getScreenshotsByUser(@AuthenticationPrincipal User user) {
-        List<Screenshot> screenshots = cameraService.getScreenshotsByUser(user.getUsername());
-        return ResponseEntity.ok(screenshots);
+    public ResponseEntity<List<ScreenshotSummary>> getScreenshotsByUser(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + CursorPages.DEFAULT_PAGE_SIZE) int limit) {
+        return CursorPages.page(cursor, limit, (after, size) -> cameraService.getScreenshotsByUser(user.getUsername(), after, size),
+                screenshot -> new MediaCursor(screenshot.capturedAt(), screenshot.id()));
+    }
+
+    @GetMapping("/media-counts")
+    public ResponseEntity<Map<String, Object>> getMediaCounts() {
+        Map<String, Object> counts = new HashMap<>();
+        counts.put("videos", cameraService.countVideos());
+        counts.put("screenshots", cameraService.countScreenshots());
+        return ResponseEntity.ok(counts);
     }
 
     @GetMapping("/session/{sessionId}")
-    public ResponseEntity<CameraSession> getSession(@PathVariable String sessionId) {
-        Optional<CameraSession> session = cameraService.getSessionById(sessionId);
+    public ResponseEntity<SessionView> getSession(@PathVariable String sessionId) {
+        Optional<SessionView> session = cameraService.getSessionView(sessionId);
         return session.map(ResponseEntity::ok)
                      .orElse(ResponseEntity.notFound().build());
     }
 
-    @GetMapping("/download/video/{filename}")
-    public ResponseEntity<Resource> downloadVideo(@PathVariable String filename) {
+    /**
+     * Streams a video for inline playback: byte ranges for seeking, ETag/Last-Modified
+     * revalidation, and the content type recorded when the video was saved.
+     * {@code ?download=true} asks the browser to save it instead.
+     */
+    @RequestMapping(value = "/download/video/{filename}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void downloadVideo(@PathVariable String filename,
+                              @RequestParam(defaultValue = "false") boolean download,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        Path filePath = resolveStored("videos", filename);
+        if (filePath == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        String contentType = cameraService.getVideoMimeType(filename)
+                .orElseGet(() -> probeContentType(filePath, "video/webm"));
+        RangeFileSender.send(filePath, contentType, download, request, response);
+    }
+
+    @RequestMapping(value = "/download/screenshot/{filename}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void downloadScreenshot(@PathVariable String filename,
+                                   @RequestParam(defaultValue = "false") boolean download,
+                                   HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
+        Path filePath = resolveStored("screenshots", filename);
+        if (filePath == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        String contentType = cameraService.getScreenshotMimeType(filename)
+                .orElseGet(() -> probeContentType(filePath, MediaType.IMAGE_PNG_VALUE));
+        RangeFileSender.send(filePath, contentType, download, request, response);
+    }
+
+    /**
+     * Gallery thumbnail of a video ({@code type=video}) or screenshot. WebP is served to
+     * clients that accept it, JPEG otherwise; 404 until the thumbnail has been generated.
+     */
+    @GetMapping("/download/thumbnail/{id}")
+    public void downloadThumbnail(@PathVariable Long id,
+                                  @RequestParam(defaultValue = "video") String type,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        ThumbnailService.Kind kind;
         try {
-            Path filePath = Paths.get("/workspace/uploads/videos").resolve(filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType("video/webm"))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (MalformedURLException e) {
-            return ResponseEntity.badRequest().build();
+            kind = ThumbnailService.Kind.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        String accept = request.getHeader("Accept");
+        boolean webp = accept != null && accept.contains("image/webp");
+        Optional<Path> thumbnail = thumbnailService.find(kind, id, webp);
+        if (thumbnail.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        String contentType = thumbnail.get().toString().endsWith(".webp") ? "image/webp" : MediaType.IMAGE_JPEG_VALUE;
+        // The representation depends on Accept; thumbnails never change once written
+        response.setHeader("Vary", "Accept");
+        response.setHeader("Cache-Control", "private, max-age=86400");
+        RangeFileSender.send(thumbnail.get(), contentType, false, request, response);
+    }
+
+    // Null if the name would leave the storage directory
+    private Path resolveStored(String directory, String filename) {
+        Path base = Paths.get(uploadDir, directory).toAbsolutePath().normalize();
+        Path filePath = base.resolve(filename).normalize();
+        return filePath.getParent() != null && filePath.getParent().equals(base) ? filePath : null;
     }
 
-    @GetMapping("/download/screenshot/{filename}")
-    public ResponseEntity<Resource> downloadScreenshot(@PathVariable String filename) {
+    private static String probeContentType(Path filePath, String fallback) {
         try {
-            Path filePath = Paths.get("/workspace/uploads/screenshots").resolve(filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.IMAGE_PNG)
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (MalformedURLException e) {
-            return ResponseEntity.badRequest().build();
+            String probed = Files.probeContentType(filePath);
+            return probed != null ? probed : fallback;
+        } catch (IOException e) {
+            return fallback;
         }
     }
 
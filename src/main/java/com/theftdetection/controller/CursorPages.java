@@ -0,0 +1,47 @@
+package com.theftdetection.controller;
+
+import com.theftdetection.service.MediaCursor;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Keyset-paged list responses. The body stays a plain JSON list; when more rows exist
+ * the {@code X-Next-Cursor} header carries the cursor for the next page.
+ */
+final class CursorPages {
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private CursorPages() {}
+
+    /**
+     * Runs {@code query} for the page after {@code cursor}, answering 400 for a cursor
+     * that does not decode. One row past the page is fetched to learn whether a next
+     * page exists.
+     */
+    static <T> ResponseEntity<List<T>> page(String cursor, int limit,
+                                            BiFunction<MediaCursor, Integer, List<T>> query,
+                                            Function<T, MediaCursor> cursorOf) {
+        MediaCursor after;
+        try {
+            after = cursor == null || cursor.isEmpty() ? null : MediaCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<T> rows = query.apply(after, size + 1);
+        if (rows.size() <= size) {
+            return ResponseEntity.ok(rows);
+        }
+        List<T> page = new ArrayList<>(rows.subList(0, size));
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, cursorOf.apply(page.get(size - 1)).encode())
+                .body(page);
+    }
+}
@@ -1,31 +1,129 @@
 package com.theftdetection.controller;
 
-import com.theftdetection.entity.VideoRecord;
+import com.theftdetection.dto.VideoSummary;
+import com.theftdetection.entity.ViolenceSegment;
 import com.theftdetection.service.CameraStreamingService;
+import com.theftdetection.service.LiveViolenceAnalyzer;
+import com.theftdetection.service.MediaCursor;
+import com.theftdetection.service.VideoAnalysisService;
+import com.theftdetection.service.ViolenceDetectionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/violence-detection")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = CursorPages.NEXT_CURSOR_HEADER)
 public class ViolenceDetectionController {
 
     @Autowired
     private CameraStreamingService cameraService;
 
+    @Autowired
+    private ViolenceDetectionService violenceDetectionService;
+
+    @Autowired
+    private LiveViolenceAnalyzer liveAnalyzer;
+
+    @Autowired
+    private VideoAnalysisService videoAnalysisService;
+
+    /**
+     * Videos analyzed as violent, newest first, with their hot ranges. Optional filters:
+     * {@code deviceId}, {@code from} (inclusive) and {@code to} (exclusive) as ISO date-times.
+     * Paged like the media listings: the next page's cursor is in {@code X-Next-Cursor}.
+     */
     @GetMapping("/results")
-    public ResponseEntity<List<VideoRecord>> getViolenceDetectionResults() {
-        List<VideoRecord> videos = cameraService.getAllVideos();
-        List<VideoRecord> violenceVideos = videos.stream()
-                .filter(video -> video.getViolenceDetected() != null && video.getViolenceDetected())
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(violenceVideos);
+    public ResponseEntity<List<Map<String, Object>>> getViolenceDetectionResults(
+            @RequestParam(required = false) String deviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + CursorPages.DEFAULT_PAGE_SIZE) int limit) {
+        ResponseEntity<List<VideoSummary>> page = CursorPages.page(cursor, limit,
+                (after, size) -> videoAnalysisService.getViolentVideos(deviceId, from, to, after, size),
+                video -> new MediaCursor(video.recordedAt(), video.id()));
+        if (!page.getStatusCode().is2xxSuccessful()) {
+            return ResponseEntity.status(page.getStatusCode()).build();
+        }
+        List<VideoSummary> violenceVideos = page.getBody();
+
+        Map<Long, List<Map<String, Object>>> hotRanges = videoAnalysisService.getHotRanges(
+                violenceVideos.stream().map(VideoSummary::id).collect(Collectors.toList()));
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (VideoSummary video : violenceVideos) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("id", video.id());
+            result.put("fileName", video.fileName());
+            result.put("recordedAt", video.recordedAt());
+            result.put("deviceId", video.deviceId());
+            result.put("mimeType", video.mimeType());
+            result.put("motionScore", video.motionScore());
+            result.put("hotRanges", hotRanges.getOrDefault(video.id(), List.of()));
+            results.add(result);
+        }
+        return ResponseEntity.ok().headers(page.getHeaders()).body(results);
+    }
+
+    @GetMapping("/results/{videoId}/segments")
+    public ResponseEntity<List<Map<String, Object>>> getSegments(@PathVariable Long videoId) {
+        List<Map<String, Object>> segments = new ArrayList<>();
+        for (ViolenceSegment segment : videoAnalysisService.getSegments(videoId)) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("startMs", segment.getStartMs());
+            entry.put("endMs", segment.getEndMs());
+            entry.put("score", segment.getScore());
+            entry.put("motionScore", segment.getMotionScore());
+            segments.add(entry);
+        }
+        return ResponseEntity.ok(segments);
+    }
+
+    @GetMapping("/model-stats")
+    public ResponseEntity<Map<String, Object>> getModelStats() {
+        return ResponseEntity.ok(violenceDetectionService.getModelStats());
+    }
+
+    @PostMapping("/live/{sessionId}")
+    public ResponseEntity<Map<String, Object>> enableLiveAnalysis(@PathVariable String sessionId) {
+        // Only live sessions: ending the session is what disables the analysis again
+        if (!cameraService.isActiveSession(sessionId)) {
+            return ResponseEntity.notFound().build();
+        }
+        liveAnalyzer.enable(sessionId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Live violence detection enabled; alerts are sent on /topic/camera/status/" + sessionId);
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/live/{sessionId}")
+    public ResponseEntity<Map<String, Object>> disableLiveAnalysis(@PathVariable String sessionId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", liveAnalyzer.disable(sessionId));
+        response.put("message", "Live violence detection disabled");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/live/{sessionId}")
+    public ResponseEntity<Map<String, Object>> getLiveAnalysisStats(@PathVariable String sessionId) {
+        Map<String, Object> stats = liveAnalyzer.getStats(sessionId);
+        return stats != null ? ResponseEntity.ok(stats) : ResponseEntity.notFound().build();
     }
 }
@@ -0,0 +1,31 @@
+package com.theftdetection.dto;
+
+import com.theftdetection.entity.Screenshot;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns a screenshot listing shows; selected directly by the repositories like
+ * {@link VideoSummary}.
+ */
+public record ScreenshotSummary(
+        Long id,
+        String fileName,
+        Long fileSize,
+        LocalDateTime capturedAt,
+        String deviceId,
+        String sessionId,
+        String mimeType,
+        Integer width,
+        Integer height,
+        boolean hasThumbnail) {
+
+    /** For screenshots already in memory, e.g. when broadcasting a new one. */
+    public static ScreenshotSummary of(Screenshot screenshot) {
+        return new ScreenshotSummary(screenshot.getId(), screenshot.getFileName(), screenshot.getFileSize(),
+                screenshot.getCapturedAt(), screenshot.getDeviceId(),
+                screenshot.getCameraSession() != null ? screenshot.getCameraSession().getSessionId() : null,
+                screenshot.getMimeType(), screenshot.getWidth(), screenshot.getHeight(),
+                screenshot.getThumbnailPath() != null);
+    }
+}
@@ -0,0 +1,34 @@
+package com.theftdetection.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.theftdetection.entity.CameraSession;
+
+import java.time.LocalDateTime;
+
+/**
+ * What dashboards and the {@code /topic/sessions} broadcasts need to know about a camera
+ * session. The owning user is reduced to a username; the user entity (with its password)
+ * and the session's media collections are never serialized.
+ */
+public record SessionView(
+        Long id,
+        String sessionId,
+        String deviceId,
+        LocalDateTime startTime,
+        LocalDateTime endTime,
+        @JsonProperty("isActive") Boolean isActive,
+        String ipAddress,
+        String userAgent,
+        String username) {
+
+    /**
+     * For sessions already in memory. Reads {@code user}, so the session must have been
+     * loaded with it (or be new).
+     */
+    public static SessionView of(CameraSession session) {
+        return new SessionView(session.getId(), session.getSessionId(), session.getDeviceId(),
+                session.getStartTime(), session.getEndTime(), session.getIsActive(),
+                session.getIpAddress(), session.getUserAgent(),
+                session.getUser() != null ? session.getUser().getUsername() : null);
+    }
+}
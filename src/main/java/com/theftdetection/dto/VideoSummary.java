@@ -0,0 +1,35 @@
+package com.theftdetection.dto;
+
+import com.theftdetection.entity.VideoRecord;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns a video listing shows. Repositories select it directly with a constructor
+ * expression, so listings never load or serialize the {@code CameraSession} graph; the
+ * session is reduced to its {@code sessionId}. Server file paths are not exposed;
+ * {@code hasThumbnail} tells clients whether the thumbnail endpoint has an image yet.
+ */
+public record VideoSummary(
+        Long id,
+        String fileName,
+        Long fileSize,
+        Integer duration,
+        LocalDateTime recordedAt,
+        String deviceId,
+        String sessionId,
+        String mimeType,
+        boolean hasThumbnail,
+        Boolean violenceDetected,
+        Double motionScore,
+        Boolean inProgress) {
+
+    /** For records already in memory, e.g. when broadcasting a new video. */
+    public static VideoSummary of(VideoRecord video) {
+        return new VideoSummary(video.getId(), video.getFileName(), video.getFileSize(), video.getDuration(),
+                video.getRecordedAt(), video.getDeviceId(),
+                video.getCameraSession() != null ? video.getCameraSession().getSessionId() : null,
+                video.getMimeType(), video.getThumbnailPath() != null, video.getViolenceDetected(),
+                video.getMotionScore(), video.getInProgress());
+    }
+}
@@ -33,7 +33,8 @@ public class CameraSession {
     @Column(name = "user_agent")
     private String userAgent;
 
-    @ManyToOne
+    // Loaded only by queries that ask for it (see CameraSessionRepository)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
@@ -4,7 +4,14 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "screenshots")
+@Table(name = "screenshots", indexes = {
+    // Downloads look media up by file name
+    @Index(name = "idx_screenshots_file_name", columnList = "file_name"),
+    // Keyset pagination of the media listings, newest first
+    @Index(name = "idx_screenshots_captured_at_id", columnList = "captured_at, id"),
+    @Index(name = "idx_screenshots_session_captured_at_id", columnList = "camera_session_id, captured_at, id"),
+    @Index(name = "idx_screenshots_user_captured_at_id", columnList = "user_id, captured_at, id")
+})
 public class Screenshot {
     
     @Id
@@ -35,9 +42,20 @@ public class Screenshot {
     @Column(name = "height")
     private Integer height;
 
-    @ManyToOne
+    @Column(name = "thumbnail_path")
+    private String thumbnailPath;
+
+    // Set when no thumbnail could be made, so the sweep stops retrying the record
+    @Column(name = "thumbnail_failed")
+    private Boolean thumbnailFailed;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "camera_session_id")
     private CameraSession cameraSession;
+
+    // The session owner's id, copied so per-user listings need no join through the session
+    @Column(name = "user_id")
+    private Long userId;
     
     // Constructors
     public Screenshot() {}
@@ -48,6 +66,7 @@ public class Screenshot {
         this.fileSize = fileSize;
         this.deviceId = deviceId;
         this.cameraSession = cameraSession;
+        this.userId = cameraSession != null && cameraSession.getUser() != null ? cameraSession.getUser().getId() : null;
         this.capturedAt = LocalDateTime.now();
         this.mimeType = "image/png";
     }
@@ -73,6 +92,12 @@ public class Screenshot {
     
     public String getMimeType() { return mimeType; }
     public void setMimeType(String mimeType) { this.mimeType = mimeType; }
+
+    public String getThumbnailPath() { return thumbnailPath; }
+    public void setThumbnailPath(String thumbnailPath) { this.thumbnailPath = thumbnailPath; }
+
+    public Boolean getThumbnailFailed() { return thumbnailFailed; }
+    public void setThumbnailFailed(Boolean thumbnailFailed) { this.thumbnailFailed = thumbnailFailed; }
     
     public Integer getWidth() { return width; }
     public void setWidth(Integer width) { this.width = width; }
@@ -82,4 +107,7 @@ public class Screenshot {
 
     public CameraSession getCameraSession() { return cameraSession; }
     public void setCameraSession(CameraSession cameraSession) { this.cameraSession = cameraSession; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
 }
\ No newline at end of file
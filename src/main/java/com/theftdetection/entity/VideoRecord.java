@@ -4,7 +4,16 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "video_records")
+@Table(name = "video_records", indexes = {
+    // Downloads look media up by file name
+    @Index(name = "idx_video_records_file_name", columnList = "file_name"),
+    // Keyset pagination of the media listings, newest first
+    @Index(name = "idx_video_records_recorded_at_id", columnList = "recorded_at, id"),
+    @Index(name = "idx_video_records_session_recorded_at_id", columnList = "camera_session_id, recorded_at, id"),
+    @Index(name = "idx_video_records_user_recorded_at_id", columnList = "user_id, recorded_at, id"),
+    // Violence results: equality on violence_detected, then a recorded_at range
+    @Index(name = "idx_video_records_violence_recorded_at_id", columnList = "violence_detected, recorded_at, id")
+})
 public class VideoRecord {
     
     @Id
@@ -35,12 +44,32 @@ public class VideoRecord {
     @Column(name = "thumbnail_path")
     private String thumbnailPath;
 
+    // Set when no thumbnail could be made, so the sweep stops retrying the record
+    @Column(name = "thumbnail_failed")
+    private Boolean thumbnailFailed;
+
     @Column(name = "violence_detected")
     private Boolean violenceDetected;
 
-    @ManyToOne
+    // Set when the video could not be analyzed; violenceDetected then stays null
+    @Column(name = "analysis_failed")
+    private Boolean analysisFailed;
+
+    // True while a streamed recording is still receiving chunks
+    @Column(name = "in_progress")
+    private Boolean inProgress;
+
+    // Highest segment motion score, 0..1; set by violence analysis
+    @Column(name = "motion_score")
+    private Double motionScore;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "camera_session_id")
     private CameraSession cameraSession;
+
+    // The session owner's id, copied so per-user listings need no join through the session
+    @Column(name = "user_id")
+    private Long userId;
     
     // Constructors
     public VideoRecord() {}
@@ -51,6 +80,7 @@ public class VideoRecord {
         this.fileSize = fileSize;
         this.deviceId = deviceId;
         this.cameraSession = cameraSession;
+        this.userId = cameraSession != null && cameraSession.getUser() != null ? cameraSession.getUser().getId() : null;
         this.recordedAt = LocalDateTime.now();
         this.mimeType = "video/webm";
     }
@@ -83,9 +113,24 @@ public class VideoRecord {
     public String getThumbnailPath() { return thumbnailPath; }
     public void setThumbnailPath(String thumbnailPath) { this.thumbnailPath = thumbnailPath; }
 
+    public Boolean getThumbnailFailed() { return thumbnailFailed; }
+    public void setThumbnailFailed(Boolean thumbnailFailed) { this.thumbnailFailed = thumbnailFailed; }
+
     public Boolean getViolenceDetected() { return violenceDetected; }
     public void setViolenceDetected(Boolean violenceDetected) { this.violenceDetected = violenceDetected; }
 
+    public Boolean getAnalysisFailed() { return analysisFailed; }
+    public void setAnalysisFailed(Boolean analysisFailed) { this.analysisFailed = analysisFailed; }
+
+    public Boolean getInProgress() { return inProgress; }
+    public void setInProgress(Boolean inProgress) { this.inProgress = inProgress; }
+
+    public Double getMotionScore() { return motionScore; }
+    public void setMotionScore(Double motionScore) { this.motionScore = motionScore; }
+
     public CameraSession getCameraSession() { return cameraSession; }
     public void setCameraSession(CameraSession cameraSession) { this.cameraSession = cameraSession; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
 }
\ No newline at end of file
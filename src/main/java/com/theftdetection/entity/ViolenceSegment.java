@@ -0,0 +1,59 @@
+package com.theftdetection.entity;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "violence_segments", indexes = @Index(name = "idx_violence_segments_video", columnList = "video_record_id"))
+public class ViolenceSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "video_record_id", nullable = false)
+    private VideoRecord videoRecord;
+
+    @Column(name = "start_ms", nullable = false)
+    private Long startMs;
+
+    @Column(name = "end_ms", nullable = false)
+    private Long endMs;
+
+    // Null when the segment had too little motion to be scored
+    @Column(name = "score")
+    private Double score;
+
+    @Column(name = "motion_score")
+    private Double motionScore;
+
+    // Constructors
+    public ViolenceSegment() {}
+
+    public ViolenceSegment(VideoRecord videoRecord, Long startMs, Long endMs, Double score, Double motionScore) {
+        this.videoRecord = videoRecord;
+        this.startMs = startMs;
+        this.endMs = endMs;
+        this.score = score;
+        this.motionScore = motionScore;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public VideoRecord getVideoRecord() { return videoRecord; }
+    public void setVideoRecord(VideoRecord videoRecord) { this.videoRecord = videoRecord; }
+
+    public Long getStartMs() { return startMs; }
+    public void setStartMs(Long startMs) { this.startMs = startMs; }
+
+    public Long getEndMs() { return endMs; }
+    public void setEndMs(Long endMs) { this.endMs = endMs; }
+
+    public Double getScore() { return score; }
+    public void setScore(Double score) { this.score = score; }
+
+    public Double getMotionScore() { return motionScore; }
+    public void setMotionScore(Double motionScore) { this.motionScore = motionScore; }
+}
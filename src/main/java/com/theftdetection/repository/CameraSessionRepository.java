@@ -1,10 +1,15 @@
 package com.theftdetection.repository;
 
+import com.theftdetection.dto.SessionView;
 import com.theftdetection.entity.CameraSession;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,14 +17,30 @@ import java.util.Optional;
 public interface CameraSessionRepository extends JpaRepository<CameraSession, Long> {
     
     Optional<CameraSession> findBySessionId(String sessionId);
+
+    // For callers that read the owner, e.g. to broadcast a SessionView; one joined SELECT
+    @EntityGraph(attributePaths = "user")
+    Optional<CameraSession> findWithUserBySessionId(String sessionId);
     
     List<CameraSession> findByDeviceId(String deviceId);
     
     List<CameraSession> findByIsActive(Boolean isActive);
     
+    // Rebuilds the ActiveSessionRegistry at startup; owners are joined for session views
+    @EntityGraph(attributePaths = "user")
     @Query("SELECT cs FROM CameraSession cs WHERE cs.isActive = true")
-    List<CameraSession> findActiveSessions();
-    
-    @Query("SELECT cs FROM CameraSession cs WHERE cs.deviceId = ?1 AND cs.isActive = true")
-    Optional<CameraSession> findActiveSessionByDeviceId(String deviceId);
+    List<CameraSession> findActiveSessionsWithUser();
+
+    // Session views select the username in the same statement
+    String VIEW_SELECT = "SELECT new com.theftdetection.dto.SessionView(cs.id, cs.sessionId, cs.deviceId, " +
+            "cs.startTime, cs.endTime, cs.isActive, cs.ipAddress, cs.userAgent, u.username) " +
+            "FROM CameraSession cs LEFT JOIN cs.user u ";
+
+    @Query(VIEW_SELECT + "WHERE cs.sessionId = ?1")
+    Optional<SessionView> findViewBySessionId(String sessionId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE CameraSession cs SET cs.isActive = false, cs.endTime = ?2 WHERE cs.sessionId = ?1")
+    int markEnded(String sessionId, LocalDateTime endTime);
 }
\ No newline at end of file
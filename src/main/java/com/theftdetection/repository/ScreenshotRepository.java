@@ -1,9 +1,14 @@
 package com.theftdetection.repository;
 
+import com.theftdetection.dto.ScreenshotSummary;
+import com.theftdetection.entity.CameraSession;
 import com.theftdetection.entity.Screenshot;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,10 +19,58 @@ public interface ScreenshotRepository extends JpaRepository<Screenshot, Long> {
     List<Screenshot> findByCameraSession(CameraSession cameraSession);
     
     List<Screenshot> findByCapturedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
+
+    // Content type for downloads, without loading the entity; served by idx_screenshots_file_name
+    @Query("SELECT s.mimeType FROM Screenshot s WHERE s.fileName = ?1")
+    List<String> findMimeTypeByFileName(String fileName, Pageable pageable);
     
-    @Query("SELECT s FROM Screenshot s WHERE s.cameraSession.user.username = ?1 ORDER BY s.capturedAt DESC")
-    List<Screenshot> findByUserUsernameOrderByCapturedAtDesc(String username);
-    
-    @Query("SELECT s FROM Screenshot s ORDER BY s.capturedAt DESC")
-    List<Screenshot> findAllOrderByCapturedAtDesc();
+    // Listing columns only; the session is joined for its sessionId and never loaded as an entity
+    String SUMMARY_SELECT = "SELECT new com.theftdetection.dto.ScreenshotSummary(s.id, s.fileName, s.fileSize, " +
+            "s.capturedAt, s.deviceId, cs.sessionId, s.mimeType, s.width, s.height, " +
+            "CASE WHEN s.thumbnailPath IS NOT NULL THEN true ELSE false END) " +
+            "FROM Screenshot s LEFT JOIN s.cameraSession cs ";
+
+    // Keyset pages, newest first; served by idx_screenshots_captured_at_id
+    @Query(SUMMARY_SELECT + "ORDER BY s.capturedAt DESC, s.id DESC")
+    List<ScreenshotSummary> findFirstPage(Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE s.capturedAt < ?1 OR (s.capturedAt = ?1 AND s.id < ?2) " +
+           "ORDER BY s.capturedAt DESC, s.id DESC")
+    List<ScreenshotSummary> findPageAfter(LocalDateTime capturedAt, Long id, Pageable pageable);
+
+    // Served by idx_screenshots_user_captured_at_id; the subquery resolves the user first
+    @Query(SUMMARY_SELECT + "WHERE s.userId IN (SELECT u.id FROM User u WHERE u.username = ?1) " +
+           "ORDER BY s.capturedAt DESC, s.id DESC")
+    List<ScreenshotSummary> findFirstPageByUsername(String username, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE s.userId IN (SELECT u.id FROM User u WHERE u.username = ?1) " +
+           "AND (s.capturedAt < ?2 OR (s.capturedAt = ?2 AND s.id < ?3)) " +
+           "ORDER BY s.capturedAt DESC, s.id DESC")
+    List<ScreenshotSummary> findPageAfterByUsername(String username, LocalDateTime capturedAt, Long id, Pageable pageable);
+
+    // Screenshots that have no thumbnail yet and have not failed to get one
+    @Query("SELECT s FROM Screenshot s WHERE s.thumbnailPath IS NULL AND (s.thumbnailFailed IS NULL OR s.thumbnailFailed = false) ORDER BY s.id")
+    List<Screenshot> findMissingThumbnail(Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Screenshot s SET s.thumbnailPath = ?2 WHERE s.id = ?1")
+    int updateThumbnailPath(Long id, String thumbnailPath);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Screenshot s SET s.thumbnailFailed = true WHERE s.id = ?1")
+    int markThumbnailFailed(Long id);
+
+    // Rows saved before user_id existed whose session has an owner to copy; an index seek
+    @Query("SELECT CASE WHEN COUNT(s) > 0 THEN true ELSE false END FROM Screenshot s JOIN s.cameraSession cs " +
+           "WHERE s.userId IS NULL AND cs.user IS NOT NULL")
+    boolean existsWithoutUserId();
+
+    // Fills user_id on those rows
+    @Modifying
+    @Transactional
+    @Query("UPDATE Screenshot s SET s.userId = (SELECT cs.user.id FROM CameraSession cs WHERE cs = s.cameraSession) " +
+           "WHERE s.userId IS NULL AND s.cameraSession IN (SELECT cs FROM CameraSession cs WHERE cs.user IS NOT NULL)")
+    int backfillUserIds();
 }
\ No newline at end of file
@@ -1,9 +1,15 @@
 package com.theftdetection.repository;
 
+import com.theftdetection.dto.VideoSummary;
+import com.theftdetection.entity.CameraSession;
 import com.theftdetection.entity.VideoRecord;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,10 +20,103 @@ public interface VideoRecordRepository extends JpaRepository<VideoRecord, Long>
     List<VideoRecord> findByCameraSession(CameraSession cameraSession);
     
     List<VideoRecord> findByRecordedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
+
+    // Content type for downloads, without loading the entity; served by idx_video_records_file_name
+    @Query("SELECT vr.mimeType FROM VideoRecord vr WHERE vr.fileName = ?1")
+    List<String> findMimeTypeByFileName(String fileName, Pageable pageable);
     
-    @Query("SELECT vr FROM VideoRecord vr WHERE vr.cameraSession.user.username = ?1 ORDER BY vr.recordedAt DESC")
-    List<VideoRecord> findByUserUsernameOrderByRecordedAtDesc(String username);
-    
-    @Query("SELECT vr FROM VideoRecord vr ORDER BY vr.recordedAt DESC")
-    List<VideoRecord> findAllOrderByRecordedAtDesc();
+    // Listing columns only; the session is joined for its sessionId and never loaded as an entity
+    String SUMMARY_SELECT = "SELECT new com.theftdetection.dto.VideoSummary(vr.id, vr.fileName, vr.fileSize, " +
+            "vr.duration, vr.recordedAt, vr.deviceId, cs.sessionId, vr.mimeType, " +
+            "CASE WHEN vr.thumbnailPath IS NOT NULL THEN true ELSE false END, " +
+            "vr.violenceDetected, vr.motionScore, vr.inProgress) " +
+            "FROM VideoRecord vr LEFT JOIN vr.cameraSession cs ";
+
+    /**
+     * Videos analyzed as violent, newest first, optionally limited to a device and a
+     * time range. {@code afterRecordedAt}/{@code afterId} continue from a previous page.
+     * Served by idx_video_records_violence_recorded_at_id.
+     */
+    @Query(SUMMARY_SELECT + "WHERE vr.violenceDetected = true " +
+           "AND (:deviceId IS NULL OR vr.deviceId = :deviceId) " +
+           "AND (:from IS NULL OR vr.recordedAt >= :from) " +
+           "AND (:to IS NULL OR vr.recordedAt < :to) " +
+           "AND (:afterRecordedAt IS NULL OR vr.recordedAt < :afterRecordedAt " +
+           "     OR (vr.recordedAt = :afterRecordedAt AND vr.id < :afterId)) " +
+           "ORDER BY vr.recordedAt DESC, vr.id DESC")
+    List<VideoSummary> findViolent(@Param("deviceId") String deviceId,
+                                   @Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to,
+                                   @Param("afterRecordedAt") LocalDateTime afterRecordedAt,
+                                   @Param("afterId") Long afterId,
+                                   Pageable pageable);
+
+    // Keyset pages, newest first; served by idx_video_records_recorded_at_id
+    @Query(SUMMARY_SELECT + "ORDER BY vr.recordedAt DESC, vr.id DESC")
+    List<VideoSummary> findFirstPage(Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE vr.recordedAt < ?1 OR (vr.recordedAt = ?1 AND vr.id < ?2) " +
+           "ORDER BY vr.recordedAt DESC, vr.id DESC")
+    List<VideoSummary> findPageAfter(LocalDateTime recordedAt, Long id, Pageable pageable);
+
+    // Served by idx_video_records_user_recorded_at_id; the subquery resolves the user first
+    @Query(SUMMARY_SELECT + "WHERE vr.userId IN (SELECT u.id FROM User u WHERE u.username = ?1) " +
+           "ORDER BY vr.recordedAt DESC, vr.id DESC")
+    List<VideoSummary> findFirstPageByUsername(String username, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE vr.userId IN (SELECT u.id FROM User u WHERE u.username = ?1) " +
+           "AND (vr.recordedAt < ?2 OR (vr.recordedAt = ?2 AND vr.id < ?3)) " +
+           "ORDER BY vr.recordedAt DESC, vr.id DESC")
+    List<VideoSummary> findPageAfterByUsername(String username, LocalDateTime recordedAt, Long id, Pageable pageable);
+
+    // Recordings marked as still streaming, e.g. left over from before a restart
+    @Query("SELECT vr FROM VideoRecord vr WHERE vr.inProgress = true")
+    List<VideoRecord> findInProgress();
+
+    // Unanalyzed videos, except recordings still being streamed and videos analysis failed on
+    @Query("SELECT vr FROM VideoRecord vr WHERE vr.violenceDetected IS NULL AND (vr.inProgress IS NULL OR vr.inProgress = false) " +
+           "AND (vr.analysisFailed IS NULL OR vr.analysisFailed = false) ORDER BY vr.id")
+    List<VideoRecord> findPendingAnalysis(Pageable pageable);
+
+    // Finished videos that have no thumbnail yet and have not failed to get one
+    @Query("SELECT vr FROM VideoRecord vr WHERE vr.thumbnailPath IS NULL AND (vr.thumbnailFailed IS NULL OR vr.thumbnailFailed = false) " +
+           "AND (vr.inProgress IS NULL OR vr.inProgress = false) ORDER BY vr.id")
+    List<VideoRecord> findMissingThumbnail(Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE VideoRecord vr SET vr.thumbnailPath = ?2 WHERE vr.id = ?1")
+    int updateThumbnailPath(Long id, String thumbnailPath);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE VideoRecord vr SET vr.thumbnailFailed = true WHERE vr.id = ?1")
+    int markThumbnailFailed(Long id);
+
+    // Rows saved before user_id existed whose session has an owner to copy; an index seek
+    @Query("SELECT CASE WHEN COUNT(vr) > 0 THEN true ELSE false END FROM VideoRecord vr JOIN vr.cameraSession cs " +
+           "WHERE vr.userId IS NULL AND cs.user IS NOT NULL")
+    boolean existsWithoutUserId();
+
+    // Fills user_id on those rows
+    @Modifying
+    @Transactional
+    @Query("UPDATE VideoRecord vr SET vr.userId = (SELECT cs.user.id FROM CameraSession cs WHERE cs = vr.cameraSession) " +
+           "WHERE vr.userId IS NULL AND vr.cameraSession IN (SELECT cs FROM CameraSession cs WHERE cs.user IS NOT NULL)")
+    int backfillUserIds();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE VideoRecord vr SET vr.fileSize = ?2, vr.inProgress = ?3 WHERE vr.id = ?1")
+    int updateRecordingProgress(Long id, Long fileSize, Boolean inProgress);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE VideoRecord vr SET vr.violenceDetected = ?2, vr.motionScore = ?3 WHERE vr.id = ?1")
+    int updateAnalysisResult(Long id, Boolean violenceDetected, Double motionScore);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE VideoRecord vr SET vr.analysisFailed = true WHERE vr.id = ?1")
+    int markAnalysisFailed(Long id);
 }
\ No newline at end of file
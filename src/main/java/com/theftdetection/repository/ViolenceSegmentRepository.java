@@ -0,0 +1,27 @@
+package com.theftdetection.repository;
+
+import com.theftdetection.entity.ViolenceSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ViolenceSegmentRepository extends JpaRepository<ViolenceSegment, Long> {
+
+    @Query("SELECT s FROM ViolenceSegment s WHERE s.videoRecord.id = ?1 ORDER BY s.startMs")
+    List<ViolenceSegment> findByVideoRecordId(Long videoRecordId);
+
+    // Segments scored above `threshold` for several videos, in playback order per video
+    @Query("SELECT s FROM ViolenceSegment s WHERE s.videoRecord.id IN ?1 AND s.score > ?2 ORDER BY s.videoRecord.id, s.startMs")
+    List<ViolenceSegment> findScoredAbove(Collection<Long> videoRecordIds, Double threshold);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ViolenceSegment s WHERE s.videoRecord.id = ?1")
+    int deleteByVideoRecordId(Long videoRecordId);
+}
@@ -0,0 +1,80 @@
+package com.theftdetection.service;
+
+import com.theftdetection.dto.SessionView;
+import com.theftdetection.entity.CameraSession;
+import com.theftdetection.repository.CameraSessionRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of the active {@link CameraSession}s, keyed by session ID and device ID.
+ * It is loaded from the database at startup (owners included) and then kept current by
+ * {@link CameraStreamingService}, which writes session changes to the database and here
+ * together. Lookups of active sessions and the dashboard listing never query the
+ * database. Sessions are held detached; they are only used as references and for views.
+ *
+ * The registry assumes this instance is the only one starting and ending sessions.
+ */
+@Component
+public class ActiveSessionRegistry {
+
+    @Autowired
+    private CameraSessionRepository sessionRepository;
+
+    private final Map<String, CameraSession> bySessionId = new ConcurrentHashMap<>();
+    private final Map<String, CameraSession> byDeviceId = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        for (CameraSession session : sessionRepository.findActiveSessionsWithUser()) {
+            register(session);
+        }
+        System.out.println("Loaded " + bySessionId.size() + " active camera sessions");
+    }
+
+    public void register(CameraSession session) {
+        bySessionId.put(session.getSessionId(), session);
+        if (session.getDeviceId() != null) {
+            byDeviceId.put(session.getDeviceId(), session);
+        }
+    }
+
+    /** Removes and returns the active session, or null if it was not active. */
+    public CameraSession remove(String sessionId) {
+        CameraSession session = bySessionId.remove(sessionId);
+        if (session != null && session.getDeviceId() != null) {
+            // Only if the device has not moved on to a newer session meanwhile
+            byDeviceId.remove(session.getDeviceId(), session);
+        }
+        return session;
+    }
+
+    public Optional<CameraSession> get(String sessionId) {
+        return Optional.ofNullable(bySessionId.get(sessionId));
+    }
+
+    public Optional<CameraSession> getByDevice(String deviceId) {
+        return Optional.ofNullable(byDeviceId.get(deviceId));
+    }
+
+    /** Active sessions, newest first. */
+    public List<SessionView> views() {
+        return bySessionId.values().stream()
+                .map(SessionView::of)
+                .sorted(Comparator.comparing(SessionView::startTime,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
+                .collect(Collectors.toList());
+    }
+
+    public int size() {
+        return bySessionId.size();
+    }
+}
@@ -0,0 +1,53 @@
+package com.theftdetection.service;
+
+import com.theftdetection.entity.VideoRecord;
+import com.theftdetection.entity.ViolenceSegment;
+import com.theftdetection.repository.VideoRecordRepository;
+import com.theftdetection.repository.ViolenceSegmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes violence analysis results. Kept apart from {@link VideoAnalysisService} so its
+ * methods are called through the transactional proxy.
+ */
+@Service
+public class AnalysisResultStore {
+
+    @Autowired
+    private VideoRecordRepository videoRepository;
+
+    @Autowired
+    private ViolenceSegmentRepository segmentRepository;
+
+    /** Adds segments to a video, e.g. the ones a recording gained since its last pass. */
+    public List<ViolenceSegment> addSegments(Long videoId, List<SegmentScore> scores) {
+        return segmentRepository.saveAll(segmentsOf(videoRepository.getReferenceById(videoId), scores));
+    }
+
+    /**
+     * Replaces a video's segments and stores its clip-level result in one transaction, so
+     * a failure part way keeps the previous analysis and readers never see segments that
+     * disagree with {@code violenceDetected}.
+     */
+    @Transactional
+    public List<ViolenceSegment> replaceResult(Long videoId, ClipAnalysis analysis) {
+        segmentRepository.deleteByVideoRecordId(videoId);
+        List<ViolenceSegment> segments = addSegments(videoId, analysis.getSegments());
+        videoRepository.updateAnalysisResult(videoId, analysis.isViolenceDetected(), analysis.getMotionScore());
+        return segments;
+    }
+
+    private static List<ViolenceSegment> segmentsOf(VideoRecord videoRecord, List<SegmentScore> scores) {
+        List<ViolenceSegment> segments = new ArrayList<>(scores.size());
+        for (SegmentScore score : scores) {
+            segments.add(new ViolenceSegment(videoRecord, score.getStartMs(), score.getEndMs(),
+                    score.getScore(), score.getMotionScore()));
+        }
+        return segments;
+    }
+}
@@ -1,14 +1,25 @@
 package com.theftdetection.service;
 
+import com.theftdetection.dto.ScreenshotSummary;
+import com.theftdetection.dto.SessionView;
+import com.theftdetection.dto.VideoSummary;
 import com.theftdetection.entity.CameraSession;
+import com.theftdetection.entity.User;
 import com.theftdetection.entity.VideoRecord;
 import com.theftdetection.entity.Screenshot;
 import com.theftdetection.repository.CameraSessionRepository;
 import com.theftdetection.repository.VideoRecordRepository;
 import com.theftdetection.repository.ScreenshotRepository;
+import com.theftdetection.websocket.FrameRelayStats;
+import com.theftdetection.websocket.StreamViewerRegistry;
+import com.theftdetection.websocket.StreamViewersChangedEvent;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -19,14 +30,20 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class CameraStreamingService {
 
     @Autowired
     private CameraSessionRepository sessionRepository;
+
+    @Autowired
+    private ActiveSessionRegistry activeSessions;
     
     @Autowired
     private VideoRecordRepository videoRepository;
@@ -38,14 +55,52 @@ public class CameraStreamingService {
     private SimpMessagingTemplate messagingTemplate;
 
     @Autowired
-    private ViolenceDetectionService violenceDetectionService;
+    private VideoAnalysisService videoAnalysisService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private LiveViolenceAnalyzer liveAnalyzer;
+
+    @Autowired
+    private FrameRelayStats relayStats;
+
+    @Autowired
+    private StreamViewerRegistry viewerRegistry;
     
     @Value("${file.upload-dir}")
     private String uploadDir;
 
+    @Value("${camera.rate-control.interval-ms:2000}")
+    private long rateControlIntervalMs;
+
+    @Value("${camera.rate-control.max-deliveries-per-second:3000}")
+    private long maxDeliveriesPerSecond;
+
+    // Last profile sent to each streaming camera, plus the relay counters at that time
+    private final Map<String, RateState> rateStates = new ConcurrentHashMap<>();
+
+    // Sessions whose camera has been told to stop streaming frames
+    private final Set<String> pausedSessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * One-time fill of user_id for media saved before the column existed; they would be
+     * missing from per-user listings. The bulk update only runs while such rows remain.
+     */
+    @PostConstruct
+    public void backfillMediaOwners() {
+        if (videoRepository.existsWithoutUserId()) {
+            videoRepository.backfillUserIds();
+        }
+        if (screenshotRepository.existsWithoutUserId()) {
+            screenshotRepository.backfillUserIds();
+        }
+    }
+
     public CameraSession startSession(String deviceId, String ipAddress, String userAgent, User user) {
         // End any existing active session for this device
-        Optional<CameraSession> existingSession = sessionRepository.findActiveSessionByDeviceId(deviceId);
+        Optional<CameraSession> existingSession = activeSessions.getByDevice(deviceId);
         if (existingSession.isPresent()) {
             endSession(existingSession.get().getSessionId());
         }
@@ -53,23 +108,38 @@ public class CameraStreamingService {
         String sessionId = UUID.randomUUID().toString();
         CameraSession session = new CameraSession(sessionId, deviceId, ipAddress, userAgent, user);
         session = sessionRepository.save(session);
+        activeSessions.register(session);
         
         // Notify all connected clients about new session
-        messagingTemplate.convertAndSend("/topic/sessions", session);
+        messagingTemplate.convertAndSend("/topic/sessions", SessionView.of(session));
         
         return session;
     }
 
+    public boolean isActiveSession(String sessionId) {
+        return activeSessions.get(sessionId).isPresent();
+    }
+
     public void endSession(String sessionId) {
-        Optional<CameraSession> sessionOpt = sessionRepository.findBySessionId(sessionId);
-        if (sessionOpt.isPresent()) {
-            CameraSession session = sessionOpt.get();
+        // Whatever the session's state, nothing should keep analyzing its frames
+        liveAnalyzer.disable(sessionId);
+        CameraSession session = activeSessions.remove(sessionId);
+        if (session == null) {
+            // Not known as active here; only the database can say otherwise
+            session = sessionRepository.findWithUserBySessionId(sessionId)
+                    .filter(s -> Boolean.TRUE.equals(s.getIsActive()))
+                    .orElse(null);
+        }
+        if (session != null) {
             session.setIsActive(false);
             session.setEndTime(LocalDateTime.now());
-            sessionRepository.save(session);
+            sessionRepository.markEnded(sessionId, session.getEndTime());
+            relayStats.remove(sessionId);
+            rateStates.remove(sessionId);
+            pausedSessions.remove(sessionId);
             
             // Notify clients about session end
-            messagingTemplate.convertAndSend("/topic/sessions/ended", session);
+            messagingTemplate.convertAndSend("/topic/sessions/ended", SessionView.of(session));
         }
     }
 
@@ -78,45 +148,146 @@ public class CameraStreamingService {
         messagingTemplate.convertAndSend("/topic/camera/" + sessionId, frameData);
     }
 
+    /**
+     * Periodically picks a capture profile for every streaming camera and sends it as a
+     * hint on its command topic. Watched cameras step down when their viewers lag or drop
+     * frames, and step up while the relay as a whole stays under its delivery budget.
+     * Unwatched cameras are paused instead (see {@link #pauseUnwatchedStream}).
+     */
+    @Scheduled(fixedDelayString = "${camera.rate-control.interval-ms:2000}")
+    public void adjustStreamRates() {
+        Map<String, FrameRelayStats.SessionStats> streams = relayStats.getAll();
+        rateStates.keySet().retainAll(streams.keySet());
+
+        long totalDelivered = 0;
+        for (Map.Entry<String, FrameRelayStats.SessionStats> entry : streams.entrySet()) {
+            RateState state = rateStates.get(entry.getKey());
+            if (state != null) {
+                totalDelivered += entry.getValue().getFramesDelivered() - state.delivered;
+            }
+        }
+        double deliveriesPerSecond = totalDelivered * 1000.0 / rateControlIntervalMs;
+        boolean overBudget = deliveriesPerSecond > maxDeliveriesPerSecond;
+        boolean headroom = deliveriesPerSecond < maxDeliveriesPerSecond * 0.8;
+
+        streams.forEach((sessionId, stats) -> {
+            RateState state = rateStates.computeIfAbsent(sessionId, id -> new RateState());
+            long received = stats.getFramesReceived();
+            long delivered = stats.getFramesDelivered() - state.delivered;
+            long dropped = stats.getFramesDropped() - state.dropped;
+            boolean streaming = received > state.received;
+            state.received = received;
+            state.delivered = stats.getFramesDelivered();
+            state.dropped = stats.getFramesDropped();
+            if (!streaming || !viewerRegistry.isWatched(sessionId)) {
+                return;
+            }
+
+            double dropRatio = delivered + dropped == 0 ? 0 : (double) dropped / (delivered + dropped);
+            double lagMillis = stats.getAverageLagMillis();
+            StreamProfile target = state.profile;
+            if (overBudget || dropRatio > 0.2 || lagMillis > 500) {
+                target = state.profile.down();
+            } else if (headroom && dropRatio < 0.05 && lagMillis < 150) {
+                target = state.profile.up();
+            }
+
+            if (target != state.profile) {
+                state.profile = target;
+                messagingTemplate.convertAndSend("/topic/camera/command/" + sessionId, target.toCommand());
+            }
+        });
+    }
+
+    /**
+     * Called when a frame arrives for a session nobody is watching. Tells the camera once
+     * to stop streaming until {@link #onViewersChanged} resumes it.
+     */
+    public void pauseUnwatchedStream(String sessionId) {
+        if (pausedSessions.add(sessionId)) {
+            messagingTemplate.convertAndSend("/topic/camera/command/" + sessionId, Map.of("command", "PAUSE_STREAM"));
+            // A viewer may have arrived, and its resume gone out, since the caller checked;
+            // resume again so this pause does not leave the camera stopped
+            if (viewerRegistry.isWatched(sessionId)) {
+                resumeStream(sessionId);
+            }
+        }
+    }
+
+    @EventListener
+    public void onViewersChanged(StreamViewersChangedEvent event) {
+        if (!event.isWatched()) {
+            return;
+        }
+        // Sent even if this node never paused the session, so a camera paused before a
+        // restart still comes back when the first viewer arrives
+        resumeStream(event.getSessionId());
+    }
+
+    private void resumeStream(String sessionId) {
+        pausedSessions.remove(sessionId);
+        rateStates.remove(sessionId);
+        messagingTemplate.convertAndSend("/topic/camera/command/" + sessionId,
+                StreamProfile.STANDARD.toCommand("RESUME_STREAM"));
+    }
+
     public VideoRecord saveVideoRecord(MultipartFile file, String deviceId, String sessionId, User user) throws IOException {
         // Create upload directory if it doesn't exist
         Path uploadPath = Paths.get(uploadDir, "videos");
         Files.createDirectories(uploadPath);
         
         // Generate unique filename preserving extension
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        }
-        String filename = "video_" + System.currentTimeMillis() + extension;
+        String filename = "video_" + System.currentTimeMillis() + extensionOf(file.getOriginalFilename());
         
-        // Save file
-        Path filePath = uploadPath.resolve(filename);
-        Files.write(filePath, file.getBytes());
+        // Save file. Multipart parts are spooled to disk by the container, so this moves or
+        // stream-copies the part instead of loading it into the heap. The path must be
+        // absolute, or the container resolves it against its own temp location.
+        Path filePath = uploadPath.resolve(filename).toAbsolutePath();
+        file.transferTo(filePath.toFile());
         
+        return registerVideo(filePath, file.getSize(), file.getContentType(), deviceId, sessionId);
+    }
+
+    /**
+     * Moves a fully received upload (e.g. from {@link ChunkedUploadService}) into the
+     * videos directory and registers it like a regular upload.
+     */
+    public VideoRecord saveUploadedVideo(Path uploadedFile, String originalFilename, String contentType,
+                                         String deviceId, String sessionId) throws IOException {
+        Path uploadPath = Paths.get(uploadDir, "videos");
+        Files.createDirectories(uploadPath);
+
+        String filename = "video_" + System.currentTimeMillis() + extensionOf(originalFilename);
+        Path filePath = uploadPath.resolve(filename).toAbsolutePath();
+        Files.move(uploadedFile, filePath);
+
+        return registerVideo(filePath, Files.size(filePath), contentType, deviceId, sessionId);
+    }
+
+    private VideoRecord registerVideo(Path filePath, long size, String contentType,
+                                      String deviceId, String sessionId) throws IOException {
         // Create database record
-        CameraSession session = sessionRepository.findBySessionId(sessionId).orElseThrow(() -> new IOException("Session not found"));
+        CameraSession session = getSessionById(sessionId).orElseThrow(() -> new IOException("Session not found"));
         VideoRecord videoRecord = new VideoRecord(
-            filename,
+            filePath.getFileName().toString(),
             filePath.toString(),
-            file.getSize(),
+            size,
             deviceId,
             session
         );
         // Persist MIME type from upload (e.g., video/mp4 on iOS Safari)
-        if (file.getContentType() != null) {
-            videoRecord.setMimeType(file.getContentType());
+        if (contentType != null) {
+            videoRecord.setMimeType(contentType);
         }
 
-        // Perform violence detection
-        boolean violenceDetected = violenceDetectionService.detectViolence(filePath.toFile());
-        videoRecord.setViolenceDetected(violenceDetected);
-        
         videoRecord = videoRepository.save(videoRecord);
         
         // Notify clients about new video
-        messagingTemplate.convertAndSend("/topic/videos/new", videoRecord);
+        messagingTemplate.convertAndSend("/topic/videos/new", VideoSummary.of(videoRecord));
+
+        // Violence detection runs in the background and reports on /topic/videos/analyzed
+        videoAnalysisService.enqueue(videoRecord);
+        thumbnailService.enqueue(videoRecord);
         
         return videoRecord;
     }
@@ -127,19 +298,16 @@ public class CameraStreamingService {
         Files.createDirectories(uploadPath);
         
         // Generate unique filename preserving extension
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        }
-        String filename = "screenshot_" + System.currentTimeMillis() + extension;
+        String filename = "screenshot_" + System.currentTimeMillis() + extensionOf(file.getOriginalFilename());
         
-        // Save file
-        Path filePath = uploadPath.resolve(filename);
-        Files.write(filePath, file.getBytes());
+        // Save file. Multipart parts are spooled to disk by the container, so this moves or
+        // stream-copies the part instead of loading it into the heap. The path must be
+        // absolute, or the container resolves it against its own temp location.
+        Path filePath = uploadPath.resolve(filename).toAbsolutePath();
+        file.transferTo(filePath.toFile());
         
         // Create database record
-        CameraSession session = sessionRepository.findBySessionId(sessionId).orElseThrow(() -> new IOException("Session not found"));
+        CameraSession session = getSessionById(sessionId).orElseThrow(() -> new IOException("Session not found"));
         Screenshot screenshot = new Screenshot(
             filename,
             filePath.toString(),
@@ -154,32 +322,87 @@ public class CameraStreamingService {
         screenshot = screenshotRepository.save(screenshot);
         
         // Notify clients about new screenshot
-        messagingTemplate.convertAndSend("/topic/screenshots/new", screenshot);
+        messagingTemplate.convertAndSend("/topic/screenshots/new", ScreenshotSummary.of(screenshot));
+        thumbnailService.enqueue(screenshot);
         
         return screenshot;
     }
 
-    public List<CameraSession> getActiveSessions() {
-        return sessionRepository.findActiveSessions();
+    public List<SessionView> getActiveSessions() {
+        return activeSessions.views();
+    }
+
+    /**
+     * Up to {@code limit} videos, newest first, following {@code after} (null for the
+     * first page). Pass the last returned video as the next cursor.
+     */
+    public List<VideoSummary> getVideos(MediaCursor after, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return after == null
+                ? videoRepository.findFirstPage(page)
+                : videoRepository.findPageAfter(after.getTimestamp(), after.getId(), page);
+    }
+
+    public List<VideoSummary> getVideosByUser(String username, MediaCursor after, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return after == null
+                ? videoRepository.findFirstPageByUsername(username, page)
+                : videoRepository.findPageAfterByUsername(username, after.getTimestamp(), after.getId(), page);
     }
 
-    public List<VideoRecord> getVideosByUser(String username) {
-        return videoRepository.findByUserUsernameOrderByRecordedAtDesc(username);
+    public List<ScreenshotSummary> getScreenshots(MediaCursor after, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return after == null
+                ? screenshotRepository.findFirstPage(page)
+                : screenshotRepository.findPageAfter(after.getTimestamp(), after.getId(), page);
     }
 
-    public List<Screenshot> getScreenshotsByUser(String username) {
-        return screenshotRepository.findByUserUsernameOrderByCapturedAtDesc(username);
+    public List<ScreenshotSummary> getScreenshotsByUser(String username, MediaCursor after, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return after == null
+                ? screenshotRepository.findFirstPageByUsername(username, page)
+                : screenshotRepository.findPageAfterByUsername(username, after.getTimestamp(), after.getId(), page);
     }
 
-    public List<VideoRecord> getAllVideos() {
-        return videoRepository.findAllOrderByRecordedAtDesc();
+    public long countVideos() {
+        return videoRepository.count();
     }
 
-    public List<Screenshot> getAllScreenshots() {
-        return screenshotRepository.findAllOrderByCapturedAtDesc();
+    public long countScreenshots() {
+        return screenshotRepository.count();
     }
 
+    /** Active sessions come from memory; ended ones are looked up in the database. */
     public Optional<CameraSession> getSessionById(String sessionId) {
-        return sessionRepository.findBySessionId(sessionId);
+        Optional<CameraSession> active = activeSessions.get(sessionId);
+        return active.isPresent() ? active : sessionRepository.findBySessionId(sessionId);
+    }
+
+    public Optional<SessionView> getSessionView(String sessionId) {
+        Optional<CameraSession> active = activeSessions.get(sessionId);
+        return active.isPresent() ? active.map(SessionView::of) : sessionRepository.findViewBySessionId(sessionId);
+    }
+
+    public Optional<String> getVideoMimeType(String fileName) {
+        return videoRepository.findMimeTypeByFileName(fileName, PageRequest.of(0, 1)).stream().findFirst();
+    }
+
+    public Optional<String> getScreenshotMimeType(String fileName) {
+        return screenshotRepository.findMimeTypeByFileName(fileName, PageRequest.of(0, 1)).stream().findFirst();
+    }
+
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename != null && originalFilename.contains(".")) {
+            return originalFilename.substring(originalFilename.lastIndexOf("."));
+        }
+        return "";
+    }
+
+    private static class RateState {
+        // Cameras start streaming at the client's default settings
+        private StreamProfile profile = StreamProfile.STANDARD;
+        private long received;
+        private long delivered;
+        private long dropped;
     }
-}
\ No newline at end of file
+}
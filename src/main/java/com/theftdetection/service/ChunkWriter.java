@@ -0,0 +1,46 @@
+package com.theftdetection.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+
+/**
+ * Copies a request body into a file at a given offset through one 64KB buffer.
+ * Shared by resumable uploads and streamed recordings.
+ */
+final class ChunkWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ChunkWriter() {}
+
+    /**
+     * Writes {@code body} into {@code path} starting at {@code offset}. {@code onWritten}
+     * receives the file position after every write. So if the body fails midway, the
+     * caller still knows how far the data got.
+     *
+     * @throws IOException if the body would go past {@code limit}, or on read/write errors
+     */
+    static void write(Path path, long offset, InputStream body, long limit, LongConsumer onWritten) throws IOException {
+        byte[] array = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(array);
+        long position = offset;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = body.read(array)) != -1) {
+                if (position + read > limit) {
+                    throw new IOException("Upload exceeds " + limit + " bytes");
+                }
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                onWritten.accept(position);
+            }
+        }
+    }
+}
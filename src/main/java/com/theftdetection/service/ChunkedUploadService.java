@@ -0,0 +1,271 @@
+package com.theftdetection.service;
+
+import com.theftdetection.entity.VideoRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resumable video uploads. A client starts an upload, then sends the file in chunks,
+ * each tagged with the byte offset it starts at. Chunks are written into a temp file
+ * at that offset, so a chunk that was cut off or sent twice is simply written again.
+ * After a failure the client asks for the current offset and continues from there.
+ * Bytes that reached the disk before a connection dropped still count.
+ */
+@Service
+public class ChunkedUploadService {
+
+    @Autowired
+    private CameraStreamingService cameraService;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Value("${file.chunked-upload.max-bytes:2147483648}")
+    private long maxBytes;
+
+    // Uploads without a chunk for this long are deleted
+    @Value("${file.chunked-upload.expiry-ms:86400000}")
+    private long expiryMs;
+
+    // How long a request waits for a chunk that another request is still writing
+    @Value("${file.chunked-upload.lock-wait-ms:5000}")
+    private long lockWaitMs;
+
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    public Upload start(String deviceId, String sessionId, String fileName, String contentType,
+                        Long totalSize) throws IOException {
+        if (cameraService.getSessionById(sessionId).isEmpty()) {
+            throw new IOException("Session not found");
+        }
+        if (totalSize != null && (totalSize < 0 || totalSize > maxBytes)) {
+            throw new IOException("Upload size must be between 0 and " + maxBytes + " bytes");
+        }
+        Path incoming = Paths.get(uploadDir, "incoming");
+        Files.createDirectories(incoming);
+
+        String uploadId = UUID.randomUUID().toString();
+        Path tempFile = incoming.resolve(uploadId + ".part").toAbsolutePath();
+        Files.createFile(tempFile);
+
+        Upload upload = new Upload(uploadId, deviceId, sessionId, fileName, contentType, totalSize, tempFile);
+        uploads.put(uploadId, upload);
+        return upload;
+    }
+
+    public Optional<Upload> get(String uploadId) {
+        return Optional.ofNullable(uploads.get(uploadId));
+    }
+
+    /**
+     * Writes {@code body} into the upload starting at {@code offset}. Returns the
+     * upload's offset afterwards.
+     *
+     * @throws OffsetMismatchException if {@code offset} is past the received bytes
+     */
+    public long append(Upload upload, long offset, InputStream body) throws IOException {
+        lock(upload);
+        try {
+            if (upload.completed) {
+                throw new IOException("Upload already completed");
+            }
+            if (offset < 0 || offset > upload.offset) {
+                throw new OffsetMismatchException(upload.offset);
+            }
+            long limit = upload.totalSize != null ? upload.totalSize : maxBytes;
+            try {
+                // Keep whatever reaches the file, even if the client goes away mid-chunk
+                ChunkWriter.write(upload.path, offset, body, limit,
+                        position -> upload.offset = Math.max(upload.offset, position));
+            } finally {
+                upload.lastActivity = System.currentTimeMillis();
+            }
+            return upload.offset;
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    /**
+     * Turns a fully received upload into a {@link VideoRecord}. The record is then
+     * analyzed like any other upload.
+     */
+    public VideoRecord complete(Upload upload) throws IOException {
+        lock(upload);
+        try {
+            if (upload.completed) {
+                throw new IOException("Upload already completed");
+            }
+            if (upload.totalSize != null && upload.offset != upload.totalSize) {
+                throw new OffsetMismatchException(upload.offset);
+            }
+            if (upload.offset == 0) {
+                throw new IOException("Upload is empty");
+            }
+            // Before the file is touched, so the upload survives a failed lookup
+            if (cameraService.getSessionById(upload.sessionId).isEmpty()) {
+                throw new IOException("Session not found");
+            }
+            // Drop bytes beyond the acknowledged offset, e.g. from an overlapping resend
+            try (FileChannel channel = FileChannel.open(upload.path, StandardOpenOption.WRITE)) {
+                channel.truncate(upload.offset);
+            }
+            VideoRecord videoRecord = cameraService.saveUploadedVideo(upload.path, upload.fileName,
+                    upload.contentType, upload.deviceId, upload.sessionId);
+            upload.completed = true;
+            uploads.remove(upload.id);
+            return videoRecord;
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    public boolean abort(String uploadId) throws IOException {
+        Upload upload = uploads.get(uploadId);
+        if (upload == null) {
+            return false;
+        }
+        lock(upload);
+        try {
+            return abortLocked(upload);
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    private boolean abortLocked(Upload upload) throws IOException {
+        if (upload.completed) {
+            return false;
+        }
+        upload.completed = true;
+        uploads.remove(upload.id);
+        Files.deleteIfExists(upload.path);
+        return true;
+    }
+
+    /**
+     * Takes the upload's lock, waiting at most {@code lock-wait-ms}: a stalled client can
+     * hold it for as long as its request body keeps the connection open.
+     */
+    private void lock(Upload upload) throws IOException {
+        try {
+            if (!upload.lock.tryLock(lockWaitMs, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Upload is busy with another request");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the upload");
+        }
+    }
+
+    /**
+     * Deletes uploads that went quiet, and temp files no upload owns any more: uploads
+     * live in memory, so their files are left behind when the server restarts.
+     */
+    @Scheduled(fixedDelayString = "${file.chunked-upload.purge-interval-ms:3600000}")
+    public void purgeStaleUploads() {
+        long cutoff = System.currentTimeMillis() - expiryMs;
+        for (Upload upload : uploads.values()) {
+            // Never waits on the shared scheduler thread; a locked upload is receiving data
+            if (upload.lastActivity >= cutoff || !upload.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (upload.lastActivity < cutoff) {
+                    abortLocked(upload);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                upload.lock.unlock();
+            }
+        }
+
+        Path incoming = Paths.get(uploadDir, "incoming");
+        if (!Files.isDirectory(incoming)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(incoming, "*.part")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String uploadId = name.substring(0, name.length() - ".part".length());
+                try {
+                    if (!uploads.containsKey(uploadId)
+                            && Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static class Upload {
+        private final String id;
+        private final String deviceId;
+        private final String sessionId;
+        private final String fileName;
+        private final String contentType;
+        private final Long totalSize;
+        private final Path path;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // Guarded by lock; volatile so status reads need no lock
+        private volatile long offset;
+        private volatile long lastActivity = System.currentTimeMillis();
+        private volatile boolean completed;
+
+        private Upload(String id, String deviceId, String sessionId, String fileName, String contentType,
+                       Long totalSize, Path path) {
+            this.id = id;
+            this.deviceId = deviceId;
+            this.sessionId = sessionId;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.totalSize = totalSize;
+            this.path = path;
+        }
+
+        public String getId() { return id; }
+
+        public String getSessionId() { return sessionId; }
+
+        public Long getTotalSize() { return totalSize; }
+
+        public long getOffset() { return offset; }
+    }
+
+    /** A chunk or completion did not line up with the bytes received so far. */
+    public static class OffsetMismatchException extends IOException {
+        private final long expectedOffset;
+
+        OffsetMismatchException(long expectedOffset) {
+            super("Expected offset " + expectedOffset);
+            this.expectedOffset = expectedOffset;
+        }
+
+        public long getExpectedOffset() { return expectedOffset; }
+    }
+}
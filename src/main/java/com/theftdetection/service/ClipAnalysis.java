@@ -0,0 +1,43 @@
+package com.theftdetection.service;
+
+import java.util.List;
+
+/**
+ * Outcome of analyzing one video clip, segment by segment. The clip counts as violent
+ * if any segment does. {@code violenceScore} is the highest segment score; it is null
+ * when the model never ran, because the clip had no decodable frames or too little
+ * motion.
+ */
+public class ClipAnalysis {
+
+    private final List<SegmentScore> segments;
+    private final double motionScore;
+    private final Double violenceScore;
+    private final boolean violenceDetected;
+
+    ClipAnalysis(List<SegmentScore> segments) {
+        this.segments = segments;
+        double motion = 0;
+        Double highest = null;
+        for (SegmentScore segment : segments) {
+            motion = Math.max(motion, segment.getMotionScore());
+            if (segment.getScore() != null && (highest == null || segment.getScore() > highest)) {
+                highest = segment.getScore();
+            }
+        }
+        this.motionScore = motion;
+        this.violenceScore = highest;
+        this.violenceDetected = ViolenceDetectionService.isViolent(highest);
+    }
+
+    public List<SegmentScore> getSegments() { return segments; }
+
+    /** Highest segment motion score. */
+    public double getMotionScore() { return motionScore; }
+
+    public Double getViolenceScore() { return violenceScore; }
+
+    public boolean isViolenceDetected() { return violenceDetected; }
+
+    public boolean isMotionGated() { return violenceScore == null; }
+}
@@ -0,0 +1,100 @@
+package com.theftdetection.service;
+
+import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.javacpp.indexer.FloatIndexer;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_32F;
+import static org.bytedeco.opencv.global.opencv_core.CV_32FC3;
+import static org.bytedeco.opencv.global.opencv_imgproc.COLOR_BGR2RGB;
+import static org.bytedeco.opencv.global.opencv_imgproc.INTER_AREA;
+import static org.bytedeco.opencv.global.opencv_imgproc.cvtColor;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+
+/**
+ * Per-thread preprocessing workspace for the violence model. Decoded frames are resized,
+ * converted to RGB and normalized by OpenCV in native memory. They are then copied
+ * natively into an off-heap input tensor. Nothing per frame or per clip is allocated on
+ * the Java heap. The 6MB tensor is allocated once per thread, on first use: threads that
+ * only {@link #normalize} into their own arrays (live decoders) never allocate it.
+ */
+class FrameTensorWriter {
+
+    // The model takes a window of FRAME_COUNT RGB frames: [1, frames, height, width, channels]
+    static final int FRAME_COUNT = 10;
+    static final int FRAME_SIZE = 224;
+    static final int CHANNELS = 3;
+
+    private static final ThreadLocal<FrameTensorWriter> WORKSPACES = ThreadLocal.withInitial(FrameTensorWriter::new);
+
+    private final OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat();
+    private final Size targetSize = new Size(FRAME_SIZE, FRAME_SIZE);
+    private final Mat resized = new Mat();
+    private final Mat rgb = new Mat();
+    private final Mat normalized = new Mat(FRAME_SIZE, FRAME_SIZE, CV_32FC3);
+
+    // ND4J view over the memory of `normalized`, used as the source of the native copy
+    private final INDArray normalizedView;
+
+    // Created by input(); only touched by the owning thread
+    private INDArray input;
+
+    private FrameTensorWriter() {
+        long length = (long) FRAME_SIZE * FRAME_SIZE * CHANNELS;
+        FloatPointer pixels = new FloatPointer(normalized.data());
+        pixels.capacity(length).limit(length);
+        DataBuffer buffer = Nd4j.createBuffer(pixels, DataType.FLOAT, length, FloatIndexer.create(pixels));
+        normalizedView = Nd4j.create(buffer, new long[]{FRAME_SIZE, FRAME_SIZE, CHANNELS});
+    }
+
+    static FrameTensorWriter forCurrentThread() {
+        return WORKSPACES.get();
+    }
+
+    /**
+     * The thread's input tensor. It is overwritten by the next clip on the same thread,
+     * so callers must be done with it (or have copied it) before preprocessing again.
+     */
+    INDArray input() {
+        if (input == null) {
+            input = Nd4j.create(DataType.FLOAT, 1, FRAME_COUNT, FRAME_SIZE, FRAME_SIZE, CHANNELS);
+        }
+        return input;
+    }
+
+    /** Wraps a decoded frame as a BGR Mat, valid only until the frame is reused. */
+    Mat toMat(Frame frame) {
+        return converter.convert(frame);
+    }
+
+    /** Writes a BGR image into frame slot {@code slot} of the input tensor. */
+    void write(int slot, Mat bgr) {
+        normalize(bgr, input().get(NDArrayIndex.point(0), NDArrayIndex.point(slot)));
+    }
+
+    /** Writes a BGR image as one model frame into {@code target}, a [height, width, channels] array. */
+    void normalize(Mat bgr, INDArray target) {
+        resize(bgr, resized, targetSize, 0, 0, INTER_AREA);
+        cvtColor(resized, rgb, COLOR_BGR2RGB);
+        // Same size and type every time, so OpenCV writes into the existing buffer
+        rgb.convertTo(normalized, CV_32F, 1.0 / 255, 0);
+        target.assign(normalizedView);
+    }
+
+    /** Fills the slots after {@code written} with the last written frame. */
+    void padFrom(int written) {
+        INDArray clip = input();
+        INDArray last = clip.get(NDArrayIndex.point(0), NDArrayIndex.point(written - 1));
+        for (int i = written; i < FRAME_COUNT; i++) {
+            clip.get(NDArrayIndex.point(0), NDArrayIndex.point(i)).assign(last);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.theftdetection.service;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects single-clip inference requests from concurrent callers into batches. A batch
+ * is stacked along dimension 0 and run through a model replica in one {@code output}
+ * call. A batch is dispatched when it reaches {@code maxBatchSize} or when its first
+ * request has waited {@code maxWaitMillis}, whichever comes first.
+ *
+ * After taking a batch's first request the dispatcher waits for a free replica before
+ * collecting the rest. So while every replica is busy, requests keep piling into the
+ * next, larger batch instead of waiting in small ones. The wait counts towards the
+ * first request's {@code maxWaitMillis}.
+ */
+class InferenceBatcher {
+
+    private final ModelPool pool;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private final ExecutorService runners;
+
+    InferenceBatcher(ModelPool pool, int maxBatchSize, long maxWaitMillis) {
+        this.pool = pool;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.dispatcher = new Thread(this::dispatchLoop, "inference-batcher");
+        this.dispatcher.setDaemon(true);
+        this.runners = Executors.newFixedThreadPool(pool.size(), runnable -> {
+            Thread thread = new Thread(runnable, "inference-runner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        dispatcher.start();
+    }
+
+    void stop() {
+        dispatcher.interrupt();
+        runners.shutdownNow();
+    }
+
+    /**
+     * Queues one clip for inference and returns its score.
+     *
+     * @param input a [1, frames, height, width, channels] tensor. It is read when its batch
+     *              is dispatched, so it must not change until the future completes.
+     */
+    CompletableFuture<Double> submit(INDArray input) {
+        Request request = new Request(input);
+        queue.add(request);
+        return request.result;
+    }
+
+    private void dispatchLoop() {
+        List<Request> pending = new ArrayList<>(maxBatchSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                pending.add(queue.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                ModelPool.Replica replica = pool.borrow();
+                boolean dispatched = false;
+                try {
+                    while (pending.size() < maxBatchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        pending.add(next);
+                    }
+                    List<Request> batch = new ArrayList<>(pending);
+                    pending.clear();
+                    try {
+                        runners.execute(() -> runBatch(replica, batch));
+                        dispatched = true;
+                    } catch (RejectedExecutionException e) {
+                        // Only after stop(): fail this batch, and the rest below
+                        batch.forEach(request -> request.result.completeExceptionally(e));
+                        break;
+                    }
+                } finally {
+                    // runBatch releases dispatched replicas
+                    if (!dispatched) {
+                        pool.release(replica, 0);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pending.addAll(queue);
+            pending.forEach(request -> request.result.completeExceptionally(new IllegalStateException("Inference stopped")));
+        }
+    }
+
+    private void runBatch(ModelPool.Replica replica, List<Request> requests) {
+        long start = System.nanoTime();
+        try {
+            int size = requests.size();
+            INDArray batch = replica.batchInput;
+            for (int i = 0; i < size; i++) {
+                batch.get(NDArrayIndex.point(i)).assign(requests.get(i).input.get(NDArrayIndex.point(0)));
+            }
+            INDArray input = size == maxBatchSize ? batch : batch.get(leading(size));
+            INDArray output = replica.model.output(input).reshape(size, -1);
+            for (int i = 0; i < size; i++) {
+                requests.get(i).result.complete(output.getDouble(i, 0));
+            }
+        } catch (Exception e) {
+            requests.forEach(request -> request.result.completeExceptionally(e));
+        } finally {
+            pool.release(replica, System.nanoTime() - start);
+        }
+    }
+
+    private static INDArrayIndex[] leading(int size) {
+        return new INDArrayIndex[]{NDArrayIndex.interval(0, size), NDArrayIndex.all(), NDArrayIndex.all(),
+                NDArrayIndex.all(), NDArrayIndex.all()};
+    }
+
+    private static class Request {
+        private final INDArray input;
+        private final CompletableFuture<Double> result = new CompletableFuture<>();
+
+        Request(INDArray input) {
+            this.input = input;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.theftdetection.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.theftdetection.websocket.StreamViewerRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8U;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMREAD_COLOR;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imdecode;
+
+/**
+ * Opt-in violence detection on live camera frames. The relay hands frames over with
+ * {@link #offerFrame} / {@link #offerJsonFrame}. These return immediately, and a frame
+ * is dropped whenever the session's previous frame is still being decoded. Decoded
+ * frames go into a per-session sliding window of {@link FrameTensorWriter#FRAME_COUNT}
+ * frames. Every {@code stride} frames the window is scored through the shared batcher,
+ * unless its motion is below {@code violence.motion.threshold}. A window is skipped
+ * while the session's previous one is still in inference, so nothing queues up under
+ * load. Alerts go to {@code /topic/camera/status/{sessionId}}.
+ */
+@Service
+public class LiveViolenceAnalyzer {
+
+    @Autowired
+    private ViolenceDetectionService violenceDetectionService;
+
+    @Autowired
+    private StreamViewerRegistry viewerRegistry;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${violence.live.workers:2}")
+    private int workers;
+
+    // Score a window every `stride` decoded frames
+    @Value("${violence.live.stride:5}")
+    private int stride;
+
+    @Value("${violence.live.threshold:0.5}")
+    private double threshold;
+
+    @Value("${violence.live.alert-cooldown-ms:10000}")
+    private long alertCooldownMs;
+
+    private ThreadPoolExecutor decoder;
+
+    private final Map<String, LiveSession> sessions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // Small queue: a frame that cannot start soon is stale anyway
+        decoder = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "live-violence-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        decoder.shutdownNow();
+    }
+
+    /**
+     * Starts analyzing {@code sessionId}. The analyzer counts as a viewer, so the camera
+     * keeps streaming (or resumes) while nobody else is watching.
+     */
+    public boolean enable(String sessionId) {
+        boolean[] added = new boolean[1];
+        sessions.computeIfAbsent(sessionId, id -> {
+            added[0] = true;
+            return new LiveSession(id);
+        });
+        if (added[0]) {
+            viewerRegistry.addAnalyzer(sessionId);
+        }
+        return added[0];
+    }
+
+    /**
+     * Stops analyzing {@code sessionId}. Its native buffers are freed right away, or by
+     * the decode or inference still using them once that finishes.
+     */
+    public boolean disable(String sessionId) {
+        LiveSession live = sessions.remove(sessionId);
+        if (live == null) {
+            return false;
+        }
+        viewerRegistry.removeAnalyzer(sessionId);
+        live.close();
+        return true;
+    }
+
+    public boolean isEnabled(String sessionId) {
+        return sessions.containsKey(sessionId);
+    }
+
+    /** Offers a raw JPEG. The bytes are copied only if the frame is accepted. */
+    public void offerFrame(String sessionId, ByteBuffer jpeg) {
+        LiveSession live = sessions.get(sessionId);
+        if (live == null) {
+            return;
+        }
+        if (!tryStartDecoding(live)) {
+            return;
+        }
+        byte[] copy = new byte[jpeg.remaining()];
+        jpeg.duplicate().get(copy);
+        submit(live, () -> copy);
+    }
+
+    /**
+     * Offers a STOMP frame message, {@code {"frame": "data:image/jpeg;base64,...", ...}}.
+     * Parsing and base64 decoding happen on the analyzer thread.
+     */
+    public void offerJsonFrame(String sessionId, byte[] json) {
+        LiveSession live = sessions.get(sessionId);
+        if (live == null) {
+            return;
+        }
+        if (!tryStartDecoding(live)) {
+            return;
+        }
+        submit(live, () -> jpegFromJson(json));
+    }
+
+    private static boolean tryStartDecoding(LiveSession live) {
+        if (!live.decoding.compareAndSet(false, true)) {
+            live.framesDropped.increment();
+            return false;
+        }
+        // disable() may have removed the session after it was looked up
+        if (live.closed) {
+            live.finishDecoding();
+            return false;
+        }
+        return true;
+    }
+
+    public Map<String, Object> getStats(String sessionId) {
+        LiveSession live = sessions.get(sessionId);
+        if (live == null) {
+            return null;
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessionId", sessionId);
+        stats.put("framesAnalyzed", live.framesDecoded.sum());
+        stats.put("framesDropped", live.framesDropped.sum());
+        stats.put("windowsScored", live.windowsScored.sum());
+        stats.put("windowsSkipped", live.windowsSkipped.sum());
+        stats.put("windowsStatic", live.windowsStatic.sum());
+        stats.put("lastMotionScore", live.lastMotionScore);
+        stats.put("lastScore", live.lastScore);
+        return stats;
+    }
+
+    private void submit(LiveSession live, Supplier<byte[]> jpeg) {
+        try {
+            decoder.execute(() -> {
+                try {
+                    decode(live, jpeg.get());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    live.finishDecoding();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            live.finishDecoding();
+            live.framesDropped.increment();
+        }
+    }
+
+    // Runs on a decoder thread; the `decoding` flag keeps it single-threaded per session
+    private void decode(LiveSession live, byte[] jpeg) {
+        if (jpeg == null) {
+            return;
+        }
+        try (BytePointer bytes = new BytePointer(jpeg);
+             Mat encoded = new Mat(1, jpeg.length, CV_8U, bytes);
+             Mat bgr = imdecode(encoded, IMREAD_COLOR)) {
+            if (bgr.empty()) {
+                return;
+            }
+            int slot = (int) (live.decoded % FrameTensorWriter.FRAME_COUNT);
+            live.motion[slot] = live.motionScorer.accept(bgr);
+            FrameTensorWriter.forCurrentThread().normalize(bgr, live.window.get(NDArrayIndex.point(slot)));
+        }
+        live.decoded++;
+        live.framesDecoded.increment();
+
+        if (live.decoded >= FrameTensorWriter.FRAME_COUNT && live.decoded % stride == 0) {
+            scoreWindow(live);
+        }
+    }
+
+    private void scoreWindow(LiveSession live) {
+        double motion = 0;
+        for (double frameMotion : live.motion) {
+            motion += frameMotion;
+        }
+        live.lastMotionScore = motion / live.motion.length;
+        if (live.lastMotionScore < violenceDetectionService.getMotionThreshold()) {
+            // Static scene: not worth a model call
+            live.windowsStatic.increment();
+            return;
+        }
+        if (violenceDetectionService.getState() != ViolenceDetectionService.ModelState.READY
+                || !live.inferring.compareAndSet(false, true)) {
+            live.windowsSkipped.increment();
+            return;
+        }
+        // Copy the ring oldest-first into the clip; the ring keeps filling meanwhile
+        int oldest = (int) (live.decoded % FrameTensorWriter.FRAME_COUNT);
+        for (int i = 0; i < FrameTensorWriter.FRAME_COUNT; i++) {
+            int slot = (oldest + i) % FrameTensorWriter.FRAME_COUNT;
+            live.clip.get(NDArrayIndex.point(0), NDArrayIndex.point(i)).assign(live.window.get(NDArrayIndex.point(slot)));
+        }
+        live.windowsScored.increment();
+        violenceDetectionService.score(live.clip).whenComplete((score, error) -> {
+            live.finishInferring();
+            if (error != null) {
+                error.printStackTrace();
+            } else {
+                onScore(live, score);
+            }
+        });
+    }
+
+    private void onScore(LiveSession live, double score) {
+        live.lastScore = score;
+        long now = System.currentTimeMillis();
+        if (score <= threshold || now - live.lastAlertAt < alertCooldownMs) {
+            return;
+        }
+        live.lastAlertAt = now;
+        String sessionId = live.sessionId;
+        Map<String, Object> alert = new HashMap<>();
+        alert.put("status", "VIOLENCE_DETECTED");
+        alert.put("sessionId", sessionId);
+        alert.put("score", score);
+        alert.put("timestamp", now);
+        messagingTemplate.convertAndSend("/topic/camera/status/" + sessionId, alert);
+    }
+
+    private byte[] jpegFromJson(byte[] json) {
+        try {
+            JsonNode frame = objectMapper.readTree(json).path("frame");
+            if (!frame.isTextual()) {
+                return null;
+            }
+            String dataUrl = frame.asText();
+            return Base64.getDecoder().decode(dataUrl.substring(dataUrl.indexOf(',') + 1));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Per-session state. The window, clip and motion scorer hold native memory; it is
+     * freed once the session is closed and neither a decode nor an inference uses it.
+     */
+    private static class LiveSession implements AutoCloseable {
+        private final String sessionId;
+
+        // Ring of the most recent decoded frames: [frames, height, width, channels]
+        private final INDArray window = Nd4j.create(DataType.FLOAT, FrameTensorWriter.FRAME_COUNT,
+                FrameTensorWriter.FRAME_SIZE, FrameTensorWriter.FRAME_SIZE, FrameTensorWriter.CHANNELS);
+        // Input of the window in inference; only rewritten once that inference completes
+        private final INDArray clip = Nd4j.create(DataType.FLOAT, 1, FrameTensorWriter.FRAME_COUNT,
+                FrameTensorWriter.FRAME_SIZE, FrameTensorWriter.FRAME_SIZE, FrameTensorWriter.CHANNELS);
+
+        // Motion of each ring slot's frame relative to the frame decoded before it
+        private final MotionScorer motionScorer = new MotionScorer();
+        private final double[] motion = new double[FrameTensorWriter.FRAME_COUNT];
+
+        private final AtomicBoolean decoding = new AtomicBoolean();
+        private final AtomicBoolean inferring = new AtomicBoolean();
+        private volatile boolean closed;
+        private boolean released;
+        private long decoded;
+
+        private final LongAdder framesDecoded = new LongAdder();
+        private final LongAdder framesDropped = new LongAdder();
+        private final LongAdder windowsScored = new LongAdder();
+        private final LongAdder windowsSkipped = new LongAdder();
+        private final LongAdder windowsStatic = new LongAdder();
+        private volatile double lastMotionScore;
+        private volatile double lastScore;
+        private volatile long lastAlertAt;
+
+        private LiveSession(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void finishDecoding() {
+            decoding.set(false);
+            releaseIfIdle();
+        }
+
+        void finishInferring() {
+            inferring.set(false);
+            releaseIfIdle();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            releaseIfIdle();
+        }
+
+        // Flags are cleared before this runs, so whichever of close() and the last user
+        // comes second sees the session idle
+        private synchronized void releaseIfIdle() {
+            if (!closed || released || decoding.get() || inferring.get()) {
+                return;
+            }
+            released = true;
+            motionScorer.close();
+            window.close();
+            clip.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.theftdetection.service;
+
+import org.deeplearning4j.nn.modelimport.keras.KerasModelImport;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.util.ModelSerializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Keeps the imported Keras model as a native DL4J zip in {@code cacheDir}. The zip
+ * name contains the SHA-256 of the Keras file, so a changed source model is imported
+ * again and replaces the stale entry. Restoring the zip is much faster than re-running
+ * the Keras importer.
+ */
+class ModelCache {
+
+    private static final String PREFIX = "violence_model_";
+    private static final String SUFFIX = ".zip";
+
+    private final Path cacheDir;
+
+    ModelCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    MultiLayerNetwork load(File kerasFile) throws Exception {
+        Files.createDirectories(cacheDir);
+        Path cached = cacheDir.resolve(PREFIX + sha256(kerasFile) + SUFFIX);
+
+        if (Files.exists(cached)) {
+            try {
+                // Inference only: the updater state is not needed
+                return ModelSerializer.restoreMultiLayerNetwork(cached.toFile(), false);
+            } catch (Exception e) {
+                System.out.println("Discarding unreadable model cache " + cached + ": " + e.getMessage());
+                Files.deleteIfExists(cached);
+            }
+        }
+
+        MultiLayerNetwork model = KerasModelImport.importKerasSequentialModelAndWeights(kerasFile.getAbsolutePath());
+        try {
+            store(model, cached);
+        } catch (IOException e) {
+            // A cache write failure only costs the next boot another import
+            e.printStackTrace();
+        }
+        return model;
+    }
+
+    private void store(MultiLayerNetwork model, Path target) throws IOException {
+        // Write next to the target and move it into place, so a crash mid-write never
+        // leaves a truncated zip under the final name
+        Path temp = Files.createTempFile(cacheDir, PREFIX, ".tmp");
+        try {
+            ModelSerializer.writeModel(model, temp.toFile(), false);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(cacheDir, PREFIX + "*" + SUFFIX)) {
+            for (Path entry : entries) {
+                if (!entry.equals(target)) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        }
+    }
+
+    private static String sha256(File file) throws IOException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
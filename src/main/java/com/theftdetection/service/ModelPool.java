@@ -0,0 +1,92 @@
+package com.theftdetection.service;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed set of model replicas. DL4J networks are not safe for concurrent
+ * {@code output} calls, so each replica is used by one borrower at a time. Each
+ * replica also carries its own preallocated batch input tensor.
+ */
+class ModelPool {
+
+    static class Replica {
+        final MultiLayerNetwork model;
+        final INDArray batchInput;
+
+        private Replica(MultiLayerNetwork model, int maxBatchSize) {
+            this.model = model;
+            this.batchInput = Nd4j.create(DataType.FLOAT, maxBatchSize, FrameTensorWriter.FRAME_COUNT,
+                    FrameTensorWriter.FRAME_SIZE, FrameTensorWriter.FRAME_SIZE, FrameTensorWriter.CHANNELS);
+        }
+    }
+
+    private final int size;
+    private final BlockingQueue<Replica> idle;
+    private final long createdAt = System.nanoTime();
+
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+
+    ModelPool(MultiLayerNetwork prototype, int size, int maxBatchSize) {
+        this.size = size;
+        this.idle = new ArrayBlockingQueue<>(size);
+        idle.add(new Replica(prototype, maxBatchSize));
+        for (int i = 1; i < size; i++) {
+            idle.add(new Replica(prototype.clone(), maxBatchSize));
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Runs {@code runs} full dummy batches on every replica. Call before the pool is shared. */
+    void warmUp(int runs) {
+        for (Replica replica : idle) {
+            for (int i = 0; i < runs; i++) {
+                replica.model.output(replica.batchInput);
+            }
+        }
+    }
+
+    /** Blocks until a replica is free. Pair every call with {@link #release}. */
+    Replica borrow() throws InterruptedException {
+        long start = System.nanoTime();
+        Replica replica = idle.take();
+        waitNanos.add(System.nanoTime() - start);
+        borrows.increment();
+        inUse.incrementAndGet();
+        return replica;
+    }
+
+    void release(Replica replica, long busyForNanos) {
+        busyNanos.add(busyForNanos);
+        inUse.decrementAndGet();
+        idle.add(replica);
+    }
+
+    Map<String, Object> stats() {
+        long borrowCount = borrows.sum();
+        long elapsed = System.nanoTime() - createdAt;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("replicas", size);
+        stats.put("inUse", inUse.get());
+        stats.put("borrows", borrowCount);
+        stats.put("averageWaitMillis", borrowCount == 0 ? 0.0 : waitNanos.sum() / 1e6 / borrowCount);
+        // Share of replica time spent running batches since the pool was created
+        stats.put("utilization", elapsed == 0 ? 0.0 : (double) busyNanos.sum() / ((double) elapsed * size));
+        return stats;
+    }
+}
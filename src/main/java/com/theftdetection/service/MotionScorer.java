@@ -0,0 +1,74 @@
+package com.theftdetection.service;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+
+import static org.bytedeco.opencv.global.opencv_core.absdiff;
+import static org.bytedeco.opencv.global.opencv_core.mean;
+import static org.bytedeco.opencv.global.opencv_imgproc.COLOR_BGR2GRAY;
+import static org.bytedeco.opencv.global.opencv_imgproc.INTER_AREA;
+import static org.bytedeco.opencv.global.opencv_imgproc.cvtColor;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+
+/**
+ * Cheap motion estimate used to keep static footage away from the model. Each frame is
+ * shrunk to a 32x32 grayscale thumbnail and compared with the previous one. The score
+ * is the mean absolute pixel difference scaled to 0..1. Noise and compression
+ * artifacts stay well under 0.01; people moving through the frame score several
+ * times that.
+ */
+class MotionScorer implements AutoCloseable {
+
+    private static final Size THUMBNAIL = new Size(32, 32);
+
+    private final Mat gray = new Mat();
+    private Mat current = new Mat();
+    private Mat previous = new Mat();
+    private final Mat diff = new Mat();
+    private boolean hasPrevious;
+
+    private double total;
+    private int comparisons;
+
+    /**
+     * Adds the next frame and returns its difference from the previous one. The first
+     * frame returns 0.
+     */
+    double accept(Mat bgr) {
+        cvtColor(bgr, gray, COLOR_BGR2GRAY);
+        resize(gray, current, THUMBNAIL, 0, 0, INTER_AREA);
+
+        double score = 0;
+        if (hasPrevious) {
+            absdiff(current, previous, diff);
+            score = mean(diff).get(0) / 255.0;
+            total += score;
+            comparisons++;
+        }
+        Mat swap = previous;
+        previous = current;
+        current = swap;
+        hasPrevious = true;
+        return score;
+    }
+
+    /** Forgets all frames, e.g. before the next segment of the same clip. */
+    void reset() {
+        hasPrevious = false;
+        total = 0;
+        comparisons = 0;
+    }
+
+    /** Mean difference over all consecutive frame pairs seen so far. */
+    double averageScore() {
+        return comparisons == 0 ? 0 : total / comparisons;
+    }
+
+    @Override
+    public void close() {
+        gray.close();
+        current.close();
+        previous.close();
+        diff.close();
+    }
+}
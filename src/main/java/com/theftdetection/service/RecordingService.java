@@ -0,0 +1,243 @@
+package com.theftdetection.service;
+
+import com.theftdetection.dto.VideoSummary;
+import com.theftdetection.entity.CameraSession;
+import com.theftdetection.entity.VideoRecord;
+import com.theftdetection.repository.VideoRecordRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recordings streamed while they are being made. The {@link VideoRecord} and its file
+ * are created when recording starts. Each {@code MediaRecorder} timeslice chunk is
+ * appended at its byte offset as it arrives, just like {@link ChunkedUploadService}.
+ * What reached the server survives a device crash: recordings that stop receiving
+ * chunks are finished automatically, and recordings cut off by a server restart are
+ * finished at startup. Violence analysis runs on the segments received so far every
+ * {@code violence.recording.analyze-interval-ms} at first, then less often as the
+ * recording grows (see {@link #analysisDue}).
+ */
+@Service
+public class RecordingService {
+
+    @Autowired
+    private CameraStreamingService cameraService;
+
+    @Autowired
+    private VideoRecordRepository videoRepository;
+
+    @Autowired
+    private VideoAnalysisService videoAnalysisService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Value("${file.recording.max-bytes:4294967296}")
+    private long maxBytes;
+
+    // Recordings without a chunk for this long are finished with what has arrived
+    @Value("${file.recording.idle-timeout-ms:120000}")
+    private long idleTimeoutMs;
+
+    @Value("${violence.recording.analyze-interval-ms:30000}")
+    private long analyzeIntervalMs;
+
+    private final Map<String, Recording> recordings = new ConcurrentHashMap<>();
+
+    /**
+     * Recordings live in memory, so any still marked in progress at startup lost their
+     * client connection with the previous run. They are finished with what is on disk.
+     */
+    @PostConstruct
+    public void finishOrphanedRecordings() {
+        for (VideoRecord videoRecord : videoRepository.findInProgress()) {
+            Path path = Paths.get(videoRecord.getFilePath());
+            try {
+                long size = Files.exists(path) ? Files.size(path) : 0L;
+                videoRepository.updateRecordingProgress(videoRecord.getId(), size, false);
+                videoRecord.setFileSize(size);
+                videoRecord.setInProgress(false);
+                videoAnalysisService.enqueueRecording(videoRecord.getId(), path.toString(), true);
+                thumbnailService.enqueue(videoRecord);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public Recording start(String deviceId, String sessionId, String contentType) throws IOException {
+        CameraSession session = cameraService.getSessionById(sessionId).orElseThrow(() -> new IOException("Session not found"));
+
+        Path uploadPath = Paths.get(uploadDir, "videos");
+        Files.createDirectories(uploadPath);
+        String extension = contentType != null && contentType.startsWith("video/mp4") ? ".mp4" : ".webm";
+        String filename = "video_" + System.currentTimeMillis() + extension;
+        Path filePath = uploadPath.resolve(filename).toAbsolutePath();
+        Files.createFile(filePath);
+
+        VideoRecord videoRecord = new VideoRecord(filename, filePath.toString(), 0L, deviceId, session);
+        if (contentType != null) {
+            videoRecord.setMimeType(contentType);
+        }
+        videoRecord.setInProgress(true);
+        videoRecord = videoRepository.save(videoRecord);
+
+        // Notify clients about the new (still growing) video
+        messagingTemplate.convertAndSend("/topic/videos/new", VideoSummary.of(videoRecord));
+
+        Recording recording = new Recording(UUID.randomUUID().toString(), videoRecord.getId(), filename, filePath);
+        recordings.put(recording.id, recording);
+        return recording;
+    }
+
+    public Optional<Recording> get(String recordingId) {
+        return Optional.ofNullable(recordings.get(recordingId));
+    }
+
+    /**
+     * Appends a chunk at {@code offset}. Returns the recording's size afterwards.
+     *
+     * @throws ChunkedUploadService.OffsetMismatchException if {@code offset} is past the received bytes
+     */
+    public long append(Recording recording, long offset, InputStream body) throws IOException {
+        recording.lock.lock();
+        try {
+            if (recording.finished) {
+                throw new IOException("Recording already finished");
+            }
+            if (offset < 0 || offset > recording.offset) {
+                throw new ChunkedUploadService.OffsetMismatchException(recording.offset);
+            }
+            try {
+                ChunkWriter.write(recording.path, offset, body, maxBytes,
+                        position -> recording.offset = Math.max(recording.offset, position));
+            } finally {
+                recording.lastActivity = System.currentTimeMillis();
+                videoRepository.updateRecordingProgress(recording.videoId, recording.offset, true);
+            }
+
+            if (analysisDue(recording)) {
+                recording.lastAnalysisAt = recording.lastActivity;
+                videoAnalysisService.enqueueRecording(recording.videoId, recording.path.toString(), false);
+            }
+            return recording.offset;
+        } finally {
+            recording.lock.unlock();
+        }
+    }
+
+    /**
+     * MediaRecorder WebM has no cues, so every pass decodes the file from the start up
+     * to the new segments. A pass is only due once the recording has run at least as
+     * long again as it had at the previous pass (and at least the configured interval).
+     * Pass lengths then grow geometrically, so all passes together decode about twice
+     * the recording instead of a cost growing with its square. The price is that new
+     * segments of long recordings are scored later.
+     */
+    private boolean analysisDue(Recording recording) {
+        long sinceLastPass = recording.lastActivity - recording.lastAnalysisAt;
+        long analyzedLength = recording.lastAnalysisAt - recording.startedAt;
+        return sinceLastPass >= Math.max(analyzeIntervalMs, analyzedLength);
+    }
+
+    public void finish(Recording recording) throws IOException {
+        recording.lock.lock();
+        try {
+            finishLocked(recording);
+        } finally {
+            recording.lock.unlock();
+        }
+    }
+
+    /**
+     * Runs on the shared scheduler thread, so it never waits for a recording: one that
+     * is locked is receiving a chunk (from a slow client, perhaps) and is not idle.
+     */
+    @Scheduled(fixedDelayString = "${file.recording.idle-check-interval-ms:30000}")
+    public void finishIdleRecordings() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        for (Recording recording : recordings.values()) {
+            if (recording.lastActivity >= cutoff || !recording.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (recording.lastActivity < cutoff) {
+                    finishLocked(recording);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                recording.lock.unlock();
+            }
+        }
+    }
+
+    private void finishLocked(Recording recording) throws IOException {
+        if (recording.finished) {
+            return;
+        }
+        recording.finished = true;
+        recordings.remove(recording.id);
+        // Drop bytes beyond the acknowledged offset, e.g. from an overlapping resend
+        try (FileChannel channel = FileChannel.open(recording.path, StandardOpenOption.WRITE)) {
+            channel.truncate(recording.offset);
+        }
+        videoRepository.updateRecordingProgress(recording.videoId, recording.offset, false);
+        videoAnalysisService.enqueueRecording(recording.videoId, recording.path.toString(), true);
+        videoRepository.findById(recording.videoId).ifPresent(thumbnailService::enqueue);
+    }
+
+    public static class Recording {
+        private final String id;
+        private final Long videoId;
+        private final String fileName;
+        private final Path path;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // Guarded by lock; volatile so status reads need no lock
+        private volatile long offset;
+        private volatile long lastActivity = System.currentTimeMillis();
+        private final long startedAt = System.currentTimeMillis();
+        private long lastAnalysisAt = startedAt;
+        private volatile boolean finished;
+
+        private Recording(String id, Long videoId, String fileName, Path path) {
+            this.id = id;
+            this.videoId = videoId;
+            this.fileName = fileName;
+            this.path = path;
+        }
+
+        public String getId() { return id; }
+
+        public Long getVideoId() { return videoId; }
+
+        public String getFileName() { return fileName; }
+
+        public long getOffset() { return offset; }
+    }
+}
@@ -0,0 +1,28 @@
+package com.theftdetection.service;
+
+/**
+ * Violence score of one time range of a clip. {@code score} is null when the segment
+ * did not reach the model because it had too little motion.
+ */
+public class SegmentScore {
+
+    private final long startMs;
+    private final long endMs;
+    private final Double score;
+    private final double motionScore;
+
+    SegmentScore(long startMs, long endMs, Double score, double motionScore) {
+        this.startMs = startMs;
+        this.endMs = endMs;
+        this.score = score;
+        this.motionScore = motionScore;
+    }
+
+    public long getStartMs() { return startMs; }
+
+    public long getEndMs() { return endMs; }
+
+    public Double getScore() { return score; }
+
+    public double getMotionScore() { return motionScore; }
+}
@@ -0,0 +1,55 @@
+package com.theftdetection.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Capture settings the server can ask a camera to stream at, from cheapest to richest.
+ * STANDARD matches what the web client streams when it starts.
+ */
+public enum StreamProfile {
+    LOW(2, 320, 0.4),
+    STANDARD(5, 480, 0.5),
+    HIGH(8, 640, 0.6),
+    MAX(12, 720, 0.7);
+
+    private final int fps;
+    private final int width;
+    private final double quality;
+
+    StreamProfile(int fps, int width, double quality) {
+        this.fps = fps;
+        this.width = width;
+        this.quality = quality;
+    }
+
+    public int getFps() { return fps; }
+    public int getWidth() { return width; }
+    public double getQuality() { return quality; }
+
+    /** The next richer profile, or this one if already at the top. */
+    public StreamProfile up() {
+        return this == MAX ? this : values()[ordinal() + 1];
+    }
+
+    /** The next cheaper profile, or this one if already at the bottom. */
+    public StreamProfile down() {
+        return this == LOW ? this : values()[ordinal() - 1];
+    }
+
+    /** Payload for the STREAM_PROFILE command on /topic/camera/command/{sessionId}. */
+    public Map<String, Object> toCommand() {
+        return toCommand("STREAM_PROFILE");
+    }
+
+    /** A camera command carrying this profile's settings. */
+    public Map<String, Object> toCommand(String name) {
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put("command", name);
+        command.put("profile", name());
+        command.put("fps", fps);
+        command.put("width", width);
+        command.put("quality", quality);
+        return command;
+    }
+}
@@ -0,0 +1,258 @@
+package com.theftdetection.service;
+
+import com.theftdetection.entity.Screenshot;
+import com.theftdetection.entity.VideoRecord;
+import com.theftdetection.repository.ScreenshotRepository;
+import com.theftdetection.repository.VideoRecordRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMREAD_COLOR;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMWRITE_JPEG_QUALITY;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMWRITE_WEBP_QUALITY;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.haveImageWriter;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imread;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imwrite;
+import static org.bytedeco.opencv.global.opencv_imgproc.INTER_AREA;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+
+/**
+ * Generates small gallery thumbnails in the background. Videos get a poster frame from
+ * about a second in; screenshots are scaled down. Each thumbnail is written as JPEG and,
+ * when the bundled OpenCV can encode it, WebP next to it. {@code thumbnailPath} holds
+ * the JPEG path and is null until generation succeeded. Records that could not be
+ * queued (or predate this service) are picked up by the periodic sweep; records no
+ * thumbnail can be made for are marked {@code thumbnailFailed} and left alone.
+ */
+@Service
+public class ThumbnailService {
+
+    public enum Kind { VIDEO, SCREENSHOT }
+
+    // Skip the first frames, which are often black or still adjusting exposure
+    private static final long POSTER_OFFSET_MICROS = 1_000_000;
+
+    @Autowired
+    private VideoRecordRepository videoRepository;
+
+    @Autowired
+    private ScreenshotRepository screenshotRepository;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Value("${file.thumbnail.width:320}")
+    private int width;
+
+    @Value("${file.thumbnail.quality:75}")
+    private int quality;
+
+    @Value("${file.thumbnail.queue-capacity:200}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    // Checked once at startup; cleared if an encode fails anyway, so the failure is logged once
+    private volatile boolean webpSupported;
+
+    // "VIDEO:12"-style keys queued or running, so the sweep never queues a record twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void start() {
+        webpSupported = haveImageWriter(".webp");
+        if (!webpSupported) {
+            System.out.println("OpenCV has no WebP encoder; thumbnails are written as JPEG only");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnailer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public boolean enqueue(VideoRecord videoRecord) {
+        return enqueue(Kind.VIDEO, videoRecord.getId(), videoRecord.getFilePath());
+    }
+
+    public boolean enqueue(Screenshot screenshot) {
+        return enqueue(Kind.SCREENSHOT, screenshot.getId(), screenshot.getFilePath());
+    }
+
+    /**
+     * The thumbnail file for a record, preferring WebP when {@code webp} is set and one
+     * was written. Empty if the record has no thumbnail (yet).
+     */
+    public Optional<Path> find(Kind kind, Long id, boolean webp) {
+        Optional<String> jpeg = kind == Kind.VIDEO
+                ? videoRepository.findById(id).map(VideoRecord::getThumbnailPath)
+                : screenshotRepository.findById(id).map(Screenshot::getThumbnailPath);
+        return jpeg.map(Paths::get).map(path -> {
+            Path webpPath = webpSibling(path);
+            return webp && Files.isRegularFile(webpPath) ? webpPath : path;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${file.thumbnail.sweep-interval-ms:60000}")
+    public void generateMissing() {
+        List<VideoRecord> videos = videoRepository.findMissingThumbnail(PageRequest.of(0, 100));
+        for (VideoRecord videoRecord : videos) {
+            if (!enqueue(videoRecord)) {
+                return;
+            }
+        }
+        List<Screenshot> screenshots = screenshotRepository.findMissingThumbnail(PageRequest.of(0, 100));
+        for (Screenshot screenshot : screenshots) {
+            if (!enqueue(screenshot)) {
+                return;
+            }
+        }
+    }
+
+    private boolean enqueue(Kind kind, Long id, String filePath) {
+        String key = key(kind, id);
+        if (!inFlight.add(key)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(kind, id, Paths.get(filePath));
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key);
+            return false;
+        }
+    }
+
+    private void generate(Kind kind, Long id, Path source) {
+        try {
+            Path directory = Paths.get(uploadDir, "thumbnails");
+            Files.createDirectories(directory);
+            Path jpeg = directory.resolve(kind.name().toLowerCase() + "_" + id + ".jpg").toAbsolutePath();
+
+            try (Mat image = kind == Kind.VIDEO ? posterFrame(source) : imread(source.toString(), IMREAD_COLOR)) {
+                if (image == null || image.empty()) {
+                    throw new IOException("No image could be decoded from " + source);
+                }
+                try (Mat scaled = scale(image)) {
+                    write(jpeg, scaled, IMWRITE_JPEG_QUALITY);
+                    // WebP is optional: the JPEG is always served when it is missing
+                    if (webpSupported) {
+                        try {
+                            write(webpSibling(jpeg), scaled, IMWRITE_WEBP_QUALITY);
+                        } catch (Exception e) {
+                            webpSupported = false;
+                            System.out.println("WebP thumbnails disabled, encoding failed: " + e.getMessage());
+                        }
+                    }
+                }
+            }
+
+            if (kind == Kind.VIDEO) {
+                videoRepository.updateThumbnailPath(id, jpeg.toString());
+            } else {
+                screenshotRepository.updateThumbnailPath(id, jpeg.toString());
+            }
+        } catch (Exception e) {
+            System.err.println("Thumbnail generation failed for " + source + ": " + e.getMessage());
+            // Recorded in the database, so the sweep moves on to other records
+            if (kind == Kind.VIDEO) {
+                videoRepository.markThumbnailFailed(id);
+            } else {
+                screenshotRepository.markThumbnailFailed(id);
+            }
+        }
+    }
+
+    /** A copy of the frame about {@link #POSTER_OFFSET_MICROS} into the video, or null. */
+    private static Mat posterFrame(Path video) throws Exception {
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(video.toFile())) {
+            grabber.start();
+            long length = grabber.getLengthInTime();
+            Frame frame;
+            if (length > 0) {
+                grabber.setTimestamp(Math.min(POSTER_OFFSET_MICROS, length / 3));
+                frame = grabber.grabImage();
+            } else {
+                // No duration (e.g. MediaRecorder WebM): decode forward to the offset
+                frame = grabber.grabImage();
+                while (frame != null && frame.timestamp < POSTER_OFFSET_MICROS) {
+                    Frame next = grabber.grabImage();
+                    if (next == null) {
+                        break;
+                    }
+                    frame = next;
+                }
+            }
+            if (frame == null) {
+                return null;
+            }
+            // The converted Mat shares the grabber's buffer, which close() releases
+            return new OpenCVFrameConverter.ToMat().convert(frame).clone();
+        }
+    }
+
+    private Mat scale(Mat image) {
+        int targetWidth = Math.min(width, image.cols());
+        int targetHeight = Math.max(1, (int) Math.round((double) image.rows() * targetWidth / image.cols()));
+        Mat scaled = new Mat();
+        resize(image, scaled, new Size(targetWidth, targetHeight), 0, 0, INTER_AREA);
+        return scaled;
+    }
+
+    private void write(Path target, Mat image, int qualityFlag) throws IOException {
+        try (IntPointer params = new IntPointer(qualityFlag, quality)) {
+            if (!imwrite(target.toString(), image, params)) {
+                throw new IOException("Could not encode " + target);
+            }
+        }
+    }
+
+    private static Path webpSibling(Path jpeg) {
+        String name = jpeg.getFileName().toString();
+        return jpeg.resolveSibling(name.substring(0, name.lastIndexOf('.')) + ".webp");
+    }
+
+    private static String key(Kind kind, Long id) {
+        return kind + ":" + id;
+    }
+}
@@ -0,0 +1,267 @@
+package com.theftdetection.service;
+
+import com.theftdetection.dto.VideoSummary;
+import com.theftdetection.entity.VideoRecord;
+import com.theftdetection.entity.ViolenceSegment;
+import com.theftdetection.repository.VideoRecordRepository;
+import com.theftdetection.repository.ViolenceSegmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs violence detection on uploaded videos in the background, so uploads return as
+ * soon as the file is stored. A record with {@code violenceDetected == null} has not
+ * been analyzed yet. Records that could not be queued are picked up again by the
+ * periodic sweep; records analysis failed on are marked {@code analysisFailed} instead
+ * and left alone.
+ */
+@Service
+public class VideoAnalysisService {
+
+    @Autowired
+    private VideoRecordRepository videoRepository;
+
+    @Autowired
+    private ViolenceSegmentRepository segmentRepository;
+
+    @Autowired
+    private AnalysisResultStore resultStore;
+
+    @Autowired
+    private ViolenceDetectionService violenceDetectionService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${violence.analysis.workers:2}")
+    private int workers;
+
+    @Value("${violence.analysis.queue-capacity:100}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    // Ids queued or running, so the sweep never queues a record twice
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Recordings that finished while one of their passes was running
+    private final Set<Long> finishPending = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "video-analysis-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues {@code videoRecord} for analysis. Returns false if the queue is full; the
+     * record stays unanalyzed and the next sweep retries it.
+     */
+    public boolean enqueue(VideoRecord videoRecord) {
+        Long id = videoRecord.getId();
+        if (!inFlight.add(id)) {
+            return true;
+        }
+        String filePath = videoRecord.getFilePath();
+        try {
+            executor.execute(() -> analyze(id, filePath));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(id);
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${violence.analysis.requeue-interval-ms:60000}")
+    public void requeuePending() {
+        List<VideoRecord> pending = videoRepository.findPendingAnalysis(PageRequest.of(0, 100));
+        for (VideoRecord videoRecord : pending) {
+            if (!enqueue(videoRecord)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Time ranges of each video where consecutive segments scored as violent, merged into
+     * {@code {startMs, endMs, maxScore}} entries. Videos without such ranges are absent.
+     */
+    public Map<Long, List<Map<String, Object>>> getHotRanges(Collection<Long> videoIds) {
+        Map<Long, List<Map<String, Object>>> ranges = new HashMap<>();
+        if (videoIds.isEmpty()) {
+            return ranges;
+        }
+        Map<Long, List<ViolenceSegment>> byVideo = new LinkedHashMap<>();
+        for (ViolenceSegment segment : segmentRepository.findScoredAbove(videoIds, ViolenceDetectionService.VIOLENCE_THRESHOLD)) {
+            byVideo.computeIfAbsent(segment.getVideoRecord().getId(), id -> new ArrayList<>()).add(segment);
+        }
+        byVideo.forEach((videoId, segments) -> ranges.put(videoId, mergeHotRanges(segments)));
+        return ranges;
+    }
+
+    /**
+     * Up to {@code limit} videos analyzed as violent, newest first, following {@code after}.
+     * {@code deviceId}, {@code from} (inclusive) and {@code to} (exclusive) may be null.
+     */
+    public List<VideoSummary> getViolentVideos(String deviceId, LocalDateTime from, LocalDateTime to,
+                                               MediaCursor after, int limit) {
+        return videoRepository.findViolent(deviceId, from, to,
+                after != null ? after.getTimestamp() : null,
+                after != null ? after.getId() : null,
+                PageRequest.of(0, limit));
+    }
+
+    public List<ViolenceSegment> getSegments(Long videoId) {
+        return segmentRepository.findByVideoRecordId(videoId);
+    }
+
+    // Expects segments of one video in playback order
+    private static List<Map<String, Object>> mergeHotRanges(List<ViolenceSegment> segments) {
+        List<Map<String, Object>> ranges = new ArrayList<>();
+        Map<String, Object> current = null;
+        for (ViolenceSegment segment : segments) {
+            if (!ViolenceDetectionService.isViolent(segment.getScore())) {
+                current = null;
+                continue;
+            }
+            if (current != null && segment.getStartMs() <= (Long) current.get("endMs")) {
+                current.put("endMs", segment.getEndMs());
+                current.put("maxScore", Math.max((Double) current.get("maxScore"), segment.getScore()));
+            } else {
+                current = new HashMap<>();
+                current.put("startMs", segment.getStartMs());
+                current.put("endMs", segment.getEndMs());
+                current.put("maxScore", segment.getScore());
+                ranges.add(current);
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Scores the segments a streamed recording has gained since the last pass. Once
+     * {@code finished}, the last partial segment is scored too and the result stored. A
+     * pass requested while another is running is dropped, except the finishing pass,
+     * which runs right after.
+     */
+    public void enqueueRecording(Long id, String filePath, boolean finished) {
+        if (!inFlight.add(id)) {
+            if (finished) {
+                finishPending.add(id);
+            }
+            return;
+        }
+        try {
+            executor.execute(() -> analyzeRecording(id, filePath, finished));
+        } catch (RejectedExecutionException e) {
+            // A finished recording left unanalyzed is picked up by the sweep
+            inFlight.remove(id);
+        }
+    }
+
+    private void analyzeRecording(Long id, String filePath, boolean finished) {
+        try {
+            if (!violenceDetectionService.awaitReady()) {
+                return;
+            }
+            List<ViolenceSegment> segments = new ArrayList<>(segmentRepository.findByVideoRecordId(id));
+            long fromMs = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).getEndMs();
+            List<SegmentScore> scores = violenceDetectionService.scoreRecordedSegments(new File(filePath), fromMs, finished);
+            segments.addAll(resultStore.addSegments(id, scores));
+            if (finished || !scores.isEmpty()) {
+                publishResult(id, segments, finished);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            inFlight.remove(id);
+            if (finishPending.remove(id)) {
+                enqueueRecording(id, filePath, true);
+            }
+        }
+    }
+
+    // Stores the clip-level result when `complete`; partial results are only broadcast
+    private void publishResult(Long id, List<ViolenceSegment> segments, boolean complete) {
+        boolean violenceDetected = false;
+        double motionScore = 0;
+        for (ViolenceSegment segment : segments) {
+            violenceDetected |= ViolenceDetectionService.isViolent(segment.getScore());
+            if (segment.getMotionScore() != null) {
+                motionScore = Math.max(motionScore, segment.getMotionScore());
+            }
+        }
+        if (complete) {
+            videoRepository.updateAnalysisResult(id, violenceDetected, motionScore);
+        }
+        broadcastResult(id, segments, violenceDetected, motionScore, !complete);
+    }
+
+    private void broadcastResult(Long id, List<ViolenceSegment> segments, boolean violenceDetected,
+                                 double motionScore, boolean inProgress) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("videoId", id);
+        event.put("violenceDetected", violenceDetected);
+        event.put("motionScore", motionScore);
+        event.put("hotRanges", mergeHotRanges(segments));
+        event.put("inProgress", inProgress);
+        messagingTemplate.convertAndSend("/topic/videos/analyzed", event);
+    }
+
+    private void analyze(Long id, String filePath) {
+        try {
+            // Workers wait here while the model loads after startup. If it failed to load
+            // the record stays unanalyzed, so nothing is stored as "no violence".
+            if (!violenceDetectionService.awaitReady()) {
+                return;
+            }
+            ClipAnalysis analysis = violenceDetectionService.analyzeClip(new File(filePath));
+            // Re-analysis replaces the previous segments
+            List<ViolenceSegment> segments = resultStore.replaceResult(id, analysis);
+            broadcastResult(id, segments, analysis.isViolenceDetected(), analysis.getMotionScore(), false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            e.printStackTrace();
+            // The result stays null: a video that could not be analyzed is not "no violence"
+            videoRepository.markAnalysisFailed(id);
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+}
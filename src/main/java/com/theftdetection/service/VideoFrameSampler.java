@@ -0,0 +1,120 @@
+package com.theftdetection.service;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+
+import java.io.File;
+
+/**
+ * Pulls a fixed number of frames per segment out of a video. When the container reports
+ * a duration, the grabber seeks to evenly spaced timestamps in a range without decoding
+ * the rest of the clip. Otherwise (e.g. MediaRecorder WebM without cues) the clip is
+ * decoded forward once and sampled segment by segment. Only the frame being handed to
+ * the consumer is ever held.
+ *
+ * Every call opens its own grabber, so different ranges of one file can be sampled
+ * from several threads at once.
+ */
+class VideoFrameSampler {
+
+    @FunctionalInterface
+    interface FrameConsumer {
+        /**
+         * @param frame only valid during the call; the grabber reuses it for the next frame
+         */
+        void accept(int index, Frame frame) throws Exception;
+    }
+
+    interface SegmentConsumer extends FrameConsumer {
+        /**
+         * Called after the last frame of each segment that had any frames. Segment
+         * bounds are in microseconds.
+         */
+        void segmentEnd(int frames, long startMicros, long endMicros) throws Exception;
+    }
+
+    private VideoFrameSampler() {}
+
+    /** The clip length in microseconds, or 0 if the container does not report it. */
+    static long lengthMicros(File videoFile) throws Exception {
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoFile)) {
+            grabber.start();
+            return Math.max(0, grabber.getLengthInTime());
+        }
+    }
+
+    /**
+     * Passes up to {@code count} frames from {@code [startMicros, endMicros)} to
+     * {@code consumer}, in order. Requires a seekable clip, i.e. one with a known length.
+     *
+     * @return the number of frames actually delivered
+     */
+    static int sampleRange(File videoFile, long startMicros, long endMicros, int count,
+                           FrameConsumer consumer) throws Exception {
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoFile)) {
+            grabber.start();
+            return sampleBySeeking(grabber, startMicros, endMicros, count, consumer);
+        }
+    }
+
+    /**
+     * Decodes the clip forward once and samples {@code count} frames from each
+     * consecutive {@code segmentMicros} segment. This is for clips without a known
+     * length, which cannot be split up front. Segments before {@code fromMicros} (a
+     * segment boundary) are decoded but not sampled. The last segment is reported only
+     * if {@code includeLast} is set. A recording that is still growing leaves it out,
+     * because its remaining frames have not arrived yet.
+     */
+    static void sampleSegments(File videoFile, long segmentMicros, int count, long fromMicros,
+                               boolean includeLast, SegmentConsumer consumer) throws Exception {
+        long spacing = segmentMicros / count;
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoFile)) {
+            grabber.start();
+            long segment = -1;
+            int delivered = 0;
+            long nextTimestamp = 0;
+            long lastTimestamp = 0;
+            Frame frame;
+            while ((frame = grabber.grabImage()) != null) {
+                lastTimestamp = frame.timestamp;
+                if (frame.timestamp < fromMicros) {
+                    continue;
+                }
+                long frameSegment = frame.timestamp / segmentMicros;
+                if (frameSegment != segment) {
+                    if (delivered > 0) {
+                        consumer.segmentEnd(delivered, segment * segmentMicros, (segment + 1) * segmentMicros);
+                    }
+                    segment = frameSegment;
+                    delivered = 0;
+                    nextTimestamp = segment * segmentMicros;
+                }
+                if (delivered < count && frame.timestamp >= nextTimestamp) {
+                    consumer.accept(delivered++, frame);
+                    nextTimestamp = frame.timestamp + spacing;
+                }
+            }
+            if (includeLast && delivered > 0) {
+                // The clip ends inside its last segment
+                consumer.segmentEnd(delivered, segment * segmentMicros, lastTimestamp + 1);
+            }
+        }
+    }
+
+    private static int sampleBySeeking(FFmpegFrameGrabber grabber, long start, long end, int count,
+                                       FrameConsumer consumer) throws Exception {
+        long length = end - start;
+        int delivered = 0;
+        for (int i = 0; i < count; i++) {
+            // Middle of each of `count` equal slices of the range
+            long timestamp = start + length * (2L * i + 1) / (2L * count);
+            grabber.setTimestamp(timestamp);
+            Frame frame = grabber.grabImage();
+            if (frame == null) {
+                break;
+            }
+            consumer.accept(delivered++, frame);
+        }
+        return delivered;
+    }
+}
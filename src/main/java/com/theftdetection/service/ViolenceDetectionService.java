@@ -1,71 +1,280 @@
 package com.theftdetection.service;
 
-import org.bytedeco.javacv.FFmpegFrameGrabber;
-import org.bytedeco.javacv.Frame;
-import org.bytedeco.javacv.Java2DFrameConverter;
-import org.deeplearning4j.nn.modelimport.keras.KerasModelImport;
+import jakarta.annotation.PreDestroy;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
-import org.nd4j.common.io.ClassPathResource;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.opencv.opencv_core.Mat;
 import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.factory.Nd4j;
-import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.common.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Scores video clips with the violence detection model. The model is loaded on a
+ * background thread once the application is ready, so startup does not wait on the
+ * model import. Callers check {@link #awaitReady()} before submitting work.
+ */
 @Service
 public class ViolenceDetectionService {
 
-    private MultiLayerNetwork model;
+    public enum ModelState { LOADING, READY, FAILED }
+
+    // The model outputs a single value between 0 and 1; scores above this are violent
+    static final double VIOLENCE_THRESHOLD = 0.5;
+
+    @Value("${violence.inference.batch-size:8}")
+    private int batchSize;
+
+    @Value("${violence.inference.max-wait-ms:5}")
+    private long batchMaxWaitMs;
+
+    // 0 = half the available cores; each replica's output call also uses native BLAS threads
+    @Value("${violence.inference.replicas:0}")
+    private int replicas;
+
+    // Imported models are cached here as DL4J zips keyed by the Keras file's hash
+    @Value("${violence.model.cache-dir:${file.upload-dir}/model-cache}")
+    private String modelCacheDir;
+
+    // Dummy batches run on every replica before the model is marked ready
+    @Value("${violence.model.warmup-runs:1}")
+    private int warmupRuns;
+
+    // Segments whose sampled frames differ less than this skip the model (see MotionScorer)
+    @Value("${violence.motion.threshold:0.015}")
+    private double motionThreshold;
+
+    @Value("${violence.segments.length-ms:4000}")
+    private long segmentLengthMs;
+
+    @Value("${violence.segments.max-per-clip:120}")
+    private int maxSegments;
+
+    // Segments of one clip sampled at the same time; their inferences meet in the batcher
+    @Value("${violence.segments.parallelism:4}")
+    private int segmentParallelism;
+
+    private final LongAdder segmentsScored = new LongAdder();
+    private final LongAdder segmentsSkippedStatic = new LongAdder();
 
-    public ViolenceDetectionService() {
+    private volatile ModelState state = ModelState.LOADING;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
+    private volatile ModelPool modelPool;
+    private volatile InferenceBatcher batcher;
+    private volatile ForkJoinPool segmentPool;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadModelInBackground() {
+        Thread loader = new Thread(this::loadModel, "violence-model-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void loadModel() {
         try {
+            long start = System.currentTimeMillis();
             File modelFile = new ClassPathResource("models/violence_detection_model.keras").getFile();
-            model = KerasModelImport.importKerasSequentialModelAndWeights(modelFile.getAbsolutePath());
+            MultiLayerNetwork model = new ModelCache(Paths.get(modelCacheDir)).load(modelFile);
+
+            int size = replicas > 0 ? replicas : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            ModelPool pool = new ModelPool(model, size, batchSize);
+            // Pays JIT and native library initialization before the first real clip does
+            pool.warmUp(warmupRuns);
+
+            InferenceBatcher inferenceBatcher = new InferenceBatcher(pool, batchSize, batchMaxWaitMs);
+            inferenceBatcher.start();
+            segmentPool = new ForkJoinPool(segmentParallelism);
+            modelPool = pool;
+            batcher = inferenceBatcher;
+            state = ModelState.READY;
+            System.out.println("Violence detection model ready in " + (System.currentTimeMillis() - start) + " ms");
         } catch (Exception e) {
+            state = ModelState.FAILED;
             e.printStackTrace();
+        } finally {
+            loaded.countDown();
         }
     }
 
-    public boolean detectViolence(File videoFile) {
-        try {
-            List<BufferedImage> frames = extractFrames(videoFile);
-            INDArray input = preprocessFrames(frames);
-            INDArray output = model.output(input);
-            return output.getDouble(0) > 0.5; // Assuming the model outputs a single value between 0 and 1
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
+    @PreDestroy
+    public void stopBatcher() {
+        if (batcher != null) {
+            batcher.stop();
         }
+        if (segmentPool != null) {
+            segmentPool.shutdownNow();
+        }
+    }
+
+    public ModelState getState() {
+        return state;
+    }
+
+    /**
+     * Blocks until the model has finished loading. Returns false if loading failed.
+     */
+    public boolean awaitReady() throws InterruptedException {
+        loaded.await();
+        return state == ModelState.READY;
     }
 
-    private List<BufferedImage> extractFrames(File videoFile) throws Exception {
-        List<BufferedImage> frames = new ArrayList<>();
-        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoFile);
-        grabber.start();
-        Java2DFrameConverter converter = new Java2DFrameConverter();
-        for (int i = 0; i < grabber.getLengthInFrames(); i++) {
-            Frame frame = grabber.grab();
-            if (frame == null) {
-                break;
+    public Map<String, Object> getModelStats() {
+        Map<String, Object> stats = new HashMap<>();
+        if (modelPool != null) {
+            stats.putAll(modelPool.stats());
+        }
+        stats.put("state", state);
+        stats.put("segmentsScored", segmentsScored.sum());
+        stats.put("segmentsSkippedStatic", segmentsSkippedStatic.sum());
+        return stats;
+    }
+
+    double getMotionThreshold() {
+        return motionThreshold;
+    }
+
+    /**
+     * Queues one [1, frames, height, width, channels] clip for inference. {@code clip}
+     * must stay unchanged until the returned future completes.
+     */
+    CompletableFuture<Double> score(INDArray clip) {
+        return batcher.submit(clip);
+    }
+
+    /**
+     * Whether a stored segment score counts as violent. The segment query behind hot ranges
+     * uses the same strict boundary. Live alerts have their own
+     * {@code violence.live.threshold}.
+     */
+    static boolean isViolent(Double score) {
+        return score != null && score > VIOLENCE_THRESHOLD;
+    }
+
+    public boolean detectViolence(File videoFile) throws Exception {
+        return analyzeClip(videoFile).isViolenceDetected();
+    }
+
+    /**
+     * Splits the clip into segments of {@code violence.segments.length-ms} and scores each
+     * one. Seekable clips are split up front and their segments sampled in parallel, each
+     * with its own grabber. Clips of unknown length are decoded once, front to back.
+     * Segments with too little motion skip the model. Throws if the clip cannot be
+     * decoded or scored, rather than reporting it as free of violence.
+     */
+    public ClipAnalysis analyzeClip(File videoFile) throws Exception {
+        if (state != ModelState.READY) {
+            throw new IllegalStateException("Violence detection model is " + state);
+        }
+        long lengthMicros = VideoFrameSampler.lengthMicros(videoFile);
+        List<SegmentScore> segments = lengthMicros > 0
+                ? scoreSegmentsInParallel(videoFile, lengthMicros)
+                : scoreSegmentsSequentially(videoFile, 0, true);
+        return new ClipAnalysis(segments);
+    }
+
+    private List<SegmentScore> scoreSegmentsInParallel(File videoFile, long lengthMicros) throws Exception {
+        // Long clips get longer segments rather than more of them
+        long segmentMicros = Math.max(segmentLengthMs * 1000, (lengthMicros + maxSegments - 1) / maxSegments);
+        List<Callable<SegmentScore>> tasks = new ArrayList<>();
+        for (long start = 0; start < lengthMicros; start += segmentMicros) {
+            long segmentStart = start;
+            long segmentEnd = Math.min(start + segmentMicros, lengthMicros);
+            tasks.add(() -> scoreSegment(videoFile, segmentStart, segmentEnd));
+        }
+
+        List<SegmentScore> segments = new ArrayList<>(tasks.size());
+        for (Future<SegmentScore> result : segmentPool.invokeAll(tasks)) {
+            SegmentScore segment = result.get();
+            if (segment != null) {
+                segments.add(segment);
             }
-            frames.add(converter.getBufferedImage(frame));
         }
-        grabber.stop();
-        return frames;
+        return segments;
+    }
+
+    // Runs on a segment pool thread, with that thread's tensor writer
+    private SegmentScore scoreSegment(File videoFile, long startMicros, long endMicros) throws Exception {
+        try (MotionScorer motion = new MotionScorer()) {
+            FrameTensorWriter writer = FrameTensorWriter.forCurrentThread();
+            int sampled = VideoFrameSampler.sampleRange(videoFile, startMicros, endMicros,
+                    FrameTensorWriter.FRAME_COUNT, (index, frame) -> {
+                        Mat bgr = writer.toMat(frame);
+                        motion.accept(bgr);
+                        writer.write(index, bgr);
+                    });
+            return finishSegment(writer, motion, sampled, startMicros, endMicros);
+        }
+    }
+
+    /**
+     * Scores the segments of a recording that is still being written, starting at
+     * {@code fromMs} (the end of the last scored segment). The unfinished last segment is
+     * left for the next pass unless the recording is {@code finished}.
+     */
+    public List<SegmentScore> scoreRecordedSegments(File videoFile, long fromMs, boolean finished) throws Exception {
+        if (state != ModelState.READY) {
+            throw new IllegalStateException("Violence detection model is " + state);
+        }
+        return scoreSegmentsSequentially(videoFile, fromMs * 1000, finished);
     }
 
-    private INDArray preprocessFrames(List<BufferedImage> frames) {
-        // This is a placeholder for the preprocessing logic.
-        // You will need to resize the frames to the expected input size of your model,
-        // normalize the pixel values, and arrange them into a 4D tensor.
-        // For example, if your model expects 10 frames of size 224x224 with 3 channels,
-        // the shape of the INDArray should be [1, 10, 224, 224, 3].
-        return Nd4j.zeros(1, 10, 224, 224, 3);
+    private List<SegmentScore> scoreSegmentsSequentially(File videoFile, long fromMicros, boolean includeLast) throws Exception {
+        List<SegmentScore> segments = new ArrayList<>();
+        try (MotionScorer motion = new MotionScorer()) {
+            FrameTensorWriter writer = FrameTensorWriter.forCurrentThread();
+            VideoFrameSampler.sampleSegments(videoFile, segmentLengthMs * 1000, FrameTensorWriter.FRAME_COUNT,
+                    fromMicros, includeLast, new VideoFrameSampler.SegmentConsumer() {
+                        @Override
+                        public void accept(int index, Frame frame) {
+                            Mat bgr = writer.toMat(frame);
+                            motion.accept(bgr);
+                            writer.write(index, bgr);
+                        }
+
+                        @Override
+                        public void segmentEnd(int frames, long startMicros, long endMicros) throws Exception {
+                            segments.add(finishSegment(writer, motion, frames, startMicros, endMicros));
+                            motion.reset();
+                        }
+                    });
+        }
+        return segments;
+    }
+
+    private SegmentScore finishSegment(FrameTensorWriter writer, MotionScorer motion, int sampled,
+                                       long startMicros, long endMicros) throws Exception {
+        if (sampled == 0) {
+            return null;
+        }
+        long startMs = startMicros / 1000;
+        long endMs = endMicros / 1000;
+        double motionScore = motion.averageScore();
+        // A single frame has no motion to measure, so it always goes to the model
+        if (sampled > 1 && motionScore < motionThreshold) {
+            segmentsSkippedStatic.increment();
+            return new SegmentScore(startMs, endMs, null, motionScore);
+        }
+        // Short segments: repeat the last frame so the window is always full
+        writer.padFrom(sampled);
+        // Blocks until the segment's batch has run; the thread's tensor is reused afterwards
+        double score = score(writer.input()).get();
+        segmentsScored.increment();
+        return new SegmentScore(startMs, endMs, score, motionScore);
     }
 }
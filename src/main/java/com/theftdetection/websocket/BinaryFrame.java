@@ -0,0 +1,66 @@
+package com.theftdetection.websocket;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Wire format of the binary camera relay. Every WebSocket message is a fixed
+ * header followed by the JPEG bytes exactly as the device encoded them:
+ *
+ * <pre>
+ *   offset  size  field
+ *   0       1     version (currently 1)
+ *   1       16    camera session id (UUID, most then least significant bits)
+ *   17      8     capture timestamp, epoch millis
+ *   25      4     sequence number
+ *   29      ...   JPEG payload
+ * </pre>
+ *
+ * All numbers are big-endian. The relay only reads the header; the payload is
+ * never decoded on the server.
+ */
+public final class BinaryFrame {
+
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 1 + 16 + 8 + 4;
+
+    private final UUID sessionId;
+    private final long timestamp;
+    private final int sequence;
+    private final int payloadLength;
+
+    private BinaryFrame(UUID sessionId, long timestamp, int sequence, int payloadLength) {
+        this.sessionId = sessionId;
+        this.timestamp = timestamp;
+        this.sequence = sequence;
+        this.payloadLength = payloadLength;
+    }
+
+    /**
+     * Reads the header of a relay message without consuming the buffer.
+     *
+     * @throws IllegalArgumentException if the message is too short or has an unknown version
+     */
+    public static BinaryFrame readHeader(ByteBuffer message) {
+        int start = message.position();
+        if (message.remaining() <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Frame too short: " + message.remaining() + " bytes");
+        }
+        byte version = message.get(start);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported frame version " + version);
+        }
+        UUID sessionId = new UUID(message.getLong(start + 1), message.getLong(start + 9));
+        long timestamp = message.getLong(start + 17);
+        int sequence = message.getInt(start + 25);
+        return new BinaryFrame(sessionId, timestamp, sequence, message.remaining() - HEADER_SIZE);
+    }
+
+    public UUID getSessionId() { return sessionId; }
+
+    public long getTimestamp() { return timestamp; }
+
+    public int getSequence() { return sequence; }
+
+    public int getPayloadLength() { return payloadLength; }
+}
@@ -0,0 +1,150 @@
+package com.theftdetection.websocket;
+
+import com.theftdetection.service.CameraStreamingService;
+import com.theftdetection.service.LiveViolenceAnalyzer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Binary counterpart of the STOMP frame relay. Cameras connect with
+ * {@code ?sessionId=...&role=camera} and push {@link BinaryFrame} messages; viewers
+ * connect with {@code role=viewer} and receive those messages unchanged.
+ */
+@Component
+public class CameraFrameRelayHandler extends BinaryWebSocketHandler {
+
+    static final String ROLE_CAMERA = "camera";
+    static final String ROLE_VIEWER = "viewer";
+
+    // Same limit as the STOMP transport in WebSocketConfig
+    private static final int SEND_TIME_LIMIT = 20_000;
+
+    // Pooled buffers fit a typical 480px JPEG; larger frames are allocated one-off
+    private static final int POOLED_FRAME_CAPACITY = 64 * 1024;
+    private static final int MAX_IDLE_FRAME_BUFFERS = 128;
+
+    private static final String ATTR_SESSION_ID = "cameraSessionId";
+    private static final String ATTR_ROLE = "relayRole";
+
+    @Autowired
+    private CameraStreamingService cameraService;
+
+    @Autowired
+    private FrameRelayStats relayStats;
+
+    @Autowired
+    private StreamViewerRegistry viewerRegistry;
+
+    @Autowired
+    private LiveViolenceAnalyzer liveAnalyzer;
+
+    @Autowired
+    @Qualifier("frameRelayExecutor")
+    private Executor relayExecutor;
+
+    private final FrameBufferPool bufferPool = new FrameBufferPool(POOLED_FRAME_CAPACITY, MAX_IDLE_FRAME_BUFFERS);
+
+    // Camera session id -> distributor for its viewers
+    private final Map<String, FrameDistributor> distributors = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        MultiValueMap<String, String> params = queryParams(session.getUri());
+        String sessionId = params.getFirst("sessionId");
+        String role = params.getFirst("role");
+
+        if (sessionId == null || !(ROLE_CAMERA.equals(role) || ROLE_VIEWER.equals(role))) {
+            session.close(CloseStatus.BAD_DATA.withReason("sessionId and role=camera|viewer are required"));
+            return;
+        }
+        if (cameraService.getSessionById(sessionId).isEmpty()) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("Unknown session"));
+            return;
+        }
+
+        session.getAttributes().put(ATTR_SESSION_ID, sessionId);
+        session.getAttributes().put(ATTR_ROLE, role);
+        if (ROLE_VIEWER.equals(role)) {
+            distributors.compute(sessionId, (id, distributor) -> {
+                FrameDistributor result = distributor != null
+                        ? distributor
+                        : new FrameDistributor(bufferPool, relayExecutor, relayStats.forSession(id), SEND_TIME_LIMIT);
+                result.addViewer(session);
+                return result;
+            });
+            viewerRegistry.addRelayViewer(sessionId);
+        }
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        if (!ROLE_CAMERA.equals(session.getAttributes().get(ATTR_ROLE))) {
+            return;
+        }
+        String sessionId = (String) session.getAttributes().get(ATTR_SESSION_ID);
+        ByteBuffer payload = message.getPayload();
+
+        BinaryFrame frame;
+        try {
+            frame = BinaryFrame.readHeader(payload);
+        } catch (IllegalArgumentException e) {
+            session.close(CloseStatus.BAD_DATA.withReason(e.getMessage()));
+            return;
+        }
+        if (!frame.getSessionId().toString().equals(sessionId)) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("Frame session does not match connection"));
+            return;
+        }
+
+        // No-op unless live analysis is on; never waits on decoding or inference
+        liveAnalyzer.offerFrame(sessionId, payload.duplicate().position(payload.position() + BinaryFrame.HEADER_SIZE));
+
+        FrameDistributor distributor = distributors.get(sessionId);
+        if (distributor == null) {
+            // No relay viewers: drop the frame and, unless STOMP viewers or live analysis
+            // still want frames, ask the camera to stop sending
+            relayStats.recordReceived(sessionId);
+            if (!viewerRegistry.isWatched(sessionId)) {
+                cameraService.pauseUnwatchedStream(sessionId);
+            }
+        } else {
+            // The container may reuse the inbound buffer once this method returns; the
+            // distributor copies it once into a pooled buffer shared by all viewers.
+            distributor.publish(payload);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        String sessionId = (String) session.getAttributes().get(ATTR_SESSION_ID);
+        if (sessionId == null || !ROLE_VIEWER.equals(session.getAttributes().get(ATTR_ROLE))) {
+            return;
+        }
+        distributors.computeIfPresent(sessionId, (id, distributor) -> {
+            distributor.removeViewer(session.getId());
+            return distributor.viewerCount() == 0 ? null : distributor;
+        });
+        viewerRegistry.removeRelayViewer(sessionId);
+    }
+
+    private static MultiValueMap<String, String> queryParams(URI uri) {
+        if (uri == null) {
+            return new LinkedMultiValueMap<>();
+        }
+        return UriComponentsBuilder.fromUri(uri).build().getQueryParams();
+    }
+}
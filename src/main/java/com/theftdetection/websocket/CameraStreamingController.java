@@ -1,12 +1,17 @@
 package com.theftdetection.websocket;
 
 import com.theftdetection.service.CameraStreamingService;
+import com.theftdetection.service.LiveViolenceAnalyzer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeTypeUtils;
 
 import java.util.Map;
 
@@ -19,19 +24,29 @@ public class CameraStreamingController {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private FrameRelayStats relayStats;
+
+    @Autowired
+    private StreamViewerRegistry viewerRegistry;
+
+    @Autowired
+    private LiveViolenceAnalyzer liveAnalyzer;
+
     @MessageMapping("/camera/frame/{sessionId}")
-    public void handleCameraFrame(@DestinationVariable String sessionId, @Payload Map<String, Object> frameData) {
-        // Broadcast the frame to all subscribers of this session
-        try {
-            Object frame = frameData.get("frame");
-            if (frame instanceof String) {
-                int len = ((String) frame).length();
-                if (len > 0) {
-                    System.out.println("Received frame for session " + sessionId + ", size=" + len);
-                }
-            }
-        } catch (Exception ignored) {}
-        messagingTemplate.convertAndSend("/topic/camera/" + sessionId, frameData);
+    public void handleCameraFrame(@DestinationVariable String sessionId, @Payload byte[] frameData) {
+        relayStats.recordReceived(sessionId);
+        // No-op unless live analysis is on; never waits on decoding or inference
+        liveAnalyzer.offerJsonFrame(sessionId, frameData);
+        if (!viewerRegistry.isWatched(sessionId)) {
+            // Nobody is subscribed: drop the frame and ask the camera to stop sending
+            cameraService.pauseUnwatchedStream(sessionId);
+            return;
+        }
+        // Relay the frame JSON exactly as the camera sent it. Taking the raw payload skips
+        // the Jackson parse/serialize round trip, and the broker hands the same message
+        // (and byte array) to every subscriber of the session.
+        messagingTemplate.send("/topic/camera/" + sessionId, jsonMessage(frameData));
     }
 
     @MessageMapping("/camera/status/{sessionId}")
@@ -53,4 +68,11 @@ public class CameraStreamingController {
         System.out.println("Received command for session " + sessionId + ": " + command.get("command"));
         messagingTemplate.convertAndSend("/topic/camera/command/" + sessionId, command);
     }
+
+    private static Message<byte[]> jsonMessage(byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
 }
\ No newline at end of file
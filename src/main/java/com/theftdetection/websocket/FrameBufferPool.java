@@ -0,0 +1,39 @@
+package com.theftdetection.websocket;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Recycles the byte arrays behind {@link SharedFrame}s so the relay does not allocate a
+ * new array per frame. Frames larger than the pooled capacity get a one-off array.
+ */
+class FrameBufferPool {
+
+    private final int bufferCapacity;
+    private final BlockingQueue<byte[]> idle;
+
+    FrameBufferPool(int bufferCapacity, int maxIdleBuffers) {
+        this.bufferCapacity = bufferCapacity;
+        this.idle = new ArrayBlockingQueue<>(maxIdleBuffers);
+    }
+
+    SharedFrame acquire(int length) {
+        byte[] array = null;
+        if (length <= bufferCapacity) {
+            array = idle.poll();
+            if (array == null) {
+                array = new byte[bufferCapacity];
+            }
+        } else {
+            array = new byte[length];
+        }
+        return new SharedFrame(this, array, length);
+    }
+
+    void recycle(byte[] array) {
+        if (array.length == bufferCapacity) {
+            // Dropped silently when the pool is already full
+            idle.offer(array);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.theftdetection.websocket;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Fans the frames of one camera session out to its viewers. Each frame is copied once
+ * into a pooled {@link SharedFrame}, and every viewer holds a reference to that same
+ * buffer. Memory per frame therefore stays the same whether there is one viewer or fifty.
+ */
+class FrameDistributor {
+
+    private final FrameBufferPool pool;
+    private final Executor executor;
+    private final FrameRelayStats.SessionStats stats;
+    private final int sendTimeLimit;
+
+    // WebSocket session id -> channel
+    private final Map<String, ViewerChannel> viewers = new ConcurrentHashMap<>();
+
+    FrameDistributor(FrameBufferPool pool, Executor executor, FrameRelayStats.SessionStats stats, int sendTimeLimit) {
+        this.pool = pool;
+        this.executor = executor;
+        this.stats = stats;
+        this.sendTimeLimit = sendTimeLimit;
+    }
+
+    void addViewer(WebSocketSession session) {
+        // Nothing else writes to a relay viewer socket, so the channel can lock on itself
+        viewers.put(session.getId(), new ViewerChannel(session, session, executor, stats, sendTimeLimit));
+    }
+
+    void removeViewer(String webSocketSessionId) {
+        ViewerChannel channel = viewers.remove(webSocketSessionId);
+        if (channel != null) {
+            channel.close(CloseStatus.NORMAL);
+        }
+    }
+
+    int viewerCount() {
+        return viewers.size();
+    }
+
+    void publish(ByteBuffer message) {
+        stats.recordReceived();
+        if (viewers.isEmpty()) {
+            return;
+        }
+        SharedFrame frame = pool.acquire(message.remaining());
+        try {
+            frame.fill(message);
+            for (ViewerChannel viewer : viewers.values()) {
+                if (viewer.isOpen()) {
+                    frame.retain();
+                    viewer.offer(new BinaryMessage(frame.view()), frame::release);
+                } else {
+                    viewers.remove(viewer.getId(), viewer);
+                }
+            }
+        } finally {
+            // Drop the distributor's own reference; viewers hold theirs until sent or dropped
+            frame.release();
+        }
+    }
+}
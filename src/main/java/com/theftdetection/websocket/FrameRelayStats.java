@@ -0,0 +1,88 @@
+package com.theftdetection.websocket;
+
+import com.theftdetection.service.ActiveSessionRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per camera session counters for the frame relay, shared by the STOMP and binary paths.
+ */
+@Component
+public class FrameRelayStats {
+
+    @Autowired
+    private ActiveSessionRegistry activeSessions;
+
+    private final Map<String, SessionStats> sessions = new ConcurrentHashMap<>();
+
+    public SessionStats forSession(String sessionId) {
+        return sessions.computeIfAbsent(sessionId, id -> new SessionStats());
+    }
+
+    /**
+     * Counts a frame a camera sent. Counters are only created for active sessions, so
+     * frames addressed to unknown or ended sessions leave no entry behind.
+     */
+    void recordReceived(String sessionId) {
+        SessionStats stats = sessions.get(sessionId);
+        if (stats == null) {
+            if (activeSessions.get(sessionId).isEmpty()) {
+                return;
+            }
+            stats = forSession(sessionId);
+        }
+        stats.recordReceived();
+    }
+
+    public SessionStats get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public Map<String, SessionStats> getAll() {
+        return Collections.unmodifiableMap(sessions);
+    }
+
+    public void remove(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public static class SessionStats {
+
+        // Weight of the newest sample in the moving average of delivery lag
+        private static final double LAG_SMOOTHING = 0.2;
+
+        private final LongAdder framesReceived = new LongAdder();
+        private final LongAdder framesDelivered = new LongAdder();
+        private final LongAdder framesDropped = new LongAdder();
+        private final AtomicLong averageLagMicros = new AtomicLong();
+
+        void recordReceived() {
+            framesReceived.increment();
+        }
+
+        void recordDropped() {
+            framesDropped.increment();
+        }
+
+        void recordDelivered(long lagNanos) {
+            framesDelivered.increment();
+            long sample = lagNanos / 1_000;
+            averageLagMicros.updateAndGet(avg -> avg == 0 ? sample : (long) (avg + LAG_SMOOTHING * (sample - avg)));
+        }
+
+        public long getFramesReceived() { return framesReceived.sum(); }
+
+        public long getFramesDelivered() { return framesDelivered.sum(); }
+
+        public long getFramesDropped() { return framesDropped.sum(); }
+
+        /** Moving average of the time a frame waits between relay and the end of its socket write. */
+        public double getAverageLagMillis() { return averageLagMicros.get() / 1_000.0; }
+    }
+}
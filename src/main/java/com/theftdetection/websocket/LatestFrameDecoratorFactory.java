@@ -0,0 +1,67 @@
+package com.theftdetection.websocket;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Applies latest-frame-wins delivery to every STOMP connection by handing the broker a
+ * {@link LatestFrameSessionDecorator} instead of the raw socket.
+ */
+@Component
+public class LatestFrameDecoratorFactory implements WebSocketHandlerDecoratorFactory {
+
+    // Same limit as the STOMP transport in WebSocketConfig
+    private static final int SEND_TIME_LIMIT = 20_000;
+
+    @Autowired
+    private FrameRelayStats relayStats;
+
+    @Autowired
+    @Qualifier("frameRelayExecutor")
+    private Executor relayExecutor;
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+
+            private final Map<String, LatestFrameSessionDecorator> sessions = new ConcurrentHashMap<>();
+
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                LatestFrameSessionDecorator decorated =
+                        new LatestFrameSessionDecorator(session, relayExecutor, relayStats, SEND_TIME_LIMIT);
+                sessions.put(session.getId(), decorated);
+                super.afterConnectionEstablished(decorated);
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                LatestFrameSessionDecorator decorated = sessions.get(session.getId());
+                if (decorated != null) {
+                    decorated.received(message);
+                }
+                super.handleMessage(session, message);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                LatestFrameSessionDecorator decorated = sessions.remove(session.getId());
+                if (decorated != null) {
+                    decorated.release();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+}
@@ -0,0 +1,143 @@
+package com.theftdetection.websocket;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Sits under the STOMP session buffer and takes camera frames out of the normal send
+ * path. A MESSAGE frame for {@code /topic/camera/{sessionId}} goes into a latest-wins
+ * {@link ViewerChannel} and returns immediately. So frames never pile up in the
+ * 512KB STOMP send buffer. All other messages (status, commands, media events) are
+ * written in order as before.
+ */
+class LatestFrameSessionDecorator extends WebSocketSessionDecorator {
+
+    private static final String FRAME_DESTINATION_HEADER = "\ndestination:/topic/camera/";
+    private static final String FRAME_TOPIC = "/topic/camera/";
+
+    private final Executor executor;
+    private final FrameRelayStats relayStats;
+    private final int sendTimeLimit;
+    private final Object sendLock = new Object();
+
+    // Camera session id -> channel, one per camera this socket is watching
+    private final Map<String, ViewerChannel> channels = new ConcurrentHashMap<>();
+
+    // STOMP subscription id -> camera session id, for the frame topics this socket subscribed to
+    private final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+
+    LatestFrameSessionDecorator(WebSocketSession session, Executor executor, FrameRelayStats relayStats, int sendTimeLimit) {
+        super(session);
+        this.executor = executor;
+        this.relayStats = relayStats;
+        this.sendTimeLimit = sendTimeLimit;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        String cameraSessionId = frameSessionId(message);
+        if (cameraSessionId == null) {
+            synchronized (sendLock) {
+                super.sendMessage(message);
+            }
+            return;
+        }
+        // A frame the broker sent just before it saw an UNSUBSCRIBE must not recreate the channel
+        ViewerChannel channel = channels.computeIfAbsent(cameraSessionId, id -> subscriptions.containsValue(id)
+                ? new ViewerChannel(getDelegate(), sendLock, executor, relayStats.forSession(id), sendTimeLimit)
+                : null);
+        if (channel == null) {
+            synchronized (sendLock) {
+                super.sendMessage(message);
+            }
+            return;
+        }
+        channel.offer(message, () -> {});
+    }
+
+    /**
+     * Tracks the client's SUBSCRIBE and UNSUBSCRIBE frames for camera frame topics, and
+     * drops a camera's channel once no subscription to it is left.
+     */
+    void received(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage)) {
+            return;
+        }
+        String payload = ((TextMessage) message).getPayload();
+        if (payload.startsWith("SUBSCRIBE\n")) {
+            String id = header(payload, "id");
+            String destination = header(payload, "destination");
+            if (id != null && destination != null && destination.startsWith(FRAME_TOPIC)) {
+                String cameraSessionId = destination.substring(FRAME_TOPIC.length());
+                if (!cameraSessionId.isEmpty() && cameraSessionId.indexOf('/') < 0) {
+                    subscriptions.put(id, cameraSessionId);
+                }
+            }
+        } else if (payload.startsWith("UNSUBSCRIBE\n")) {
+            String id = header(payload, "id");
+            String cameraSessionId = id == null ? null : subscriptions.remove(id);
+            if (cameraSessionId != null && !subscriptions.containsValue(cameraSessionId)) {
+                ViewerChannel channel = channels.remove(cameraSessionId);
+                if (channel != null) {
+                    channel.discard();
+                }
+            }
+        }
+    }
+
+    void release() {
+        channels.values().forEach(channel -> channel.close(CloseStatus.NORMAL));
+        channels.clear();
+        subscriptions.clear();
+    }
+
+    /**
+     * Returns the camera session id if {@code message} is an encoded STOMP MESSAGE frame
+     * for a camera frame topic. Only the header block is scanned, never the JPEG body.
+     */
+    static String frameSessionId(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage)) {
+            return null;
+        }
+        String payload = ((TextMessage) message).getPayload();
+        if (!payload.startsWith("MESSAGE\n")) {
+            return null;
+        }
+        int headersEnd = payload.indexOf("\n\n");
+        int header = payload.indexOf(FRAME_DESTINATION_HEADER);
+        if (header < 0 || (headersEnd >= 0 && header > headersEnd)) {
+            return null;
+        }
+        int start = header + FRAME_DESTINATION_HEADER.length();
+        int end = payload.indexOf('\n', start);
+        if (end < 0) {
+            return null;
+        }
+        String sessionId = payload.substring(start, end);
+        // Status, command and signal topics live below the frame topic
+        return sessionId.isEmpty() || sessionId.indexOf('/') >= 0 ? null : sessionId;
+    }
+
+    /**
+     * Returns the first value of header {@code name} in an encoded STOMP frame, or null.
+     */
+    static String header(String payload, String name) {
+        int headersEnd = payload.indexOf("\n\n");
+        String prefix = "\n" + name + ":";
+        int header = payload.indexOf(prefix);
+        if (header < 0 || (headersEnd >= 0 && header > headersEnd)) {
+            return null;
+        }
+        int start = header + prefix.length();
+        int end = payload.indexOf('\n', start);
+        return end < 0 ? null : payload.substring(start, end);
+    }
+}
@@ -0,0 +1,52 @@
+package com.theftdetection.websocket;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One relayed frame, held once in memory no matter how many viewers it goes to.
+ * Each holder calls {@link #retain()} before using the frame and {@link #release()}
+ * when done. When the count drops to zero, the backing array goes back to the pool.
+ */
+class SharedFrame {
+
+    private final FrameBufferPool pool;
+    private final byte[] array;
+    private final int length;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    SharedFrame(FrameBufferPool pool, byte[] array, int length) {
+        this.pool = pool;
+        this.array = array;
+        this.length = length;
+    }
+
+    void fill(ByteBuffer source) {
+        source.duplicate().get(array, 0, length);
+    }
+
+    int length() { return length; }
+
+    /** A read-only view with its own position, safe to hand to a single send. */
+    ByteBuffer view() {
+        return ByteBuffer.wrap(array, 0, length).asReadOnlyBuffer();
+    }
+
+    SharedFrame retain() {
+        int previous = refCount.getAndIncrement();
+        if (previous <= 0) {
+            refCount.getAndDecrement();
+            throw new IllegalStateException("Frame already released");
+        }
+        return this;
+    }
+
+    void release() {
+        int remaining = refCount.decrementAndGet();
+        if (remaining == 0) {
+            pool.recycle(array);
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Frame released too many times");
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.theftdetection.websocket;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts who is watching each camera session: STOMP subscriptions to
+ * {@code /topic/camera/{sessionId}} plus viewers on the binary relay. Publishes a
+ * {@link StreamViewersChangedEvent} when a session goes from unwatched to watched or back.
+ */
+@Component
+public class StreamViewerRegistry {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private static final String FRAME_TOPIC_PREFIX = "/topic/camera/";
+
+    // "<websocket session id>:<subscription id>" -> camera session id
+    private final Map<String, String> stompSubscriptions = new ConcurrentHashMap<>();
+
+    // Camera session id -> viewer count
+    private final Map<String, Integer> viewerCounts = new ConcurrentHashMap<>();
+
+    public boolean isWatched(String sessionId) {
+        return viewerCounts.containsKey(sessionId);
+    }
+
+    void addRelayViewer(String sessionId) {
+        increment(sessionId);
+    }
+
+    void removeRelayViewer(String sessionId) {
+        decrement(sessionId);
+    }
+
+    /**
+     * Server-side frame consumers (live analysis) count as viewers, so the camera keeps
+     * streaming while they run.
+     */
+    public void addAnalyzer(String sessionId) {
+        increment(sessionId);
+    }
+
+    public void removeAnalyzer(String sessionId) {
+        decrement(sessionId);
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String cameraSessionId = frameTopicSessionId(accessor.getDestination());
+        if (cameraSessionId == null) {
+            return;
+        }
+        String key = accessor.getSessionId() + ":" + accessor.getSubscriptionId();
+        if (stompSubscriptions.put(key, cameraSessionId) == null) {
+            increment(cameraSessionId);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String cameraSessionId = stompSubscriptions.remove(accessor.getSessionId() + ":" + accessor.getSubscriptionId());
+        if (cameraSessionId != null) {
+            decrement(cameraSessionId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        String prefix = event.getSessionId() + ":";
+        stompSubscriptions.entrySet().removeIf(entry -> {
+            if (entry.getKey().startsWith(prefix)) {
+                decrement(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void increment(String sessionId) {
+        if (viewerCounts.merge(sessionId, 1, Integer::sum) == 1) {
+            eventPublisher.publishEvent(new StreamViewersChangedEvent(sessionId, true));
+        }
+    }
+
+    private void decrement(String sessionId) {
+        boolean[] lastViewer = new boolean[1];
+        viewerCounts.computeIfPresent(sessionId, (id, count) -> {
+            lastViewer[0] = count == 1;
+            return count > 1 ? count - 1 : null;
+        });
+        if (lastViewer[0]) {
+            eventPublisher.publishEvent(new StreamViewersChangedEvent(sessionId, false));
+        }
+    }
+
+    private static String frameTopicSessionId(String destination) {
+        if (destination == null || !destination.startsWith(FRAME_TOPIC_PREFIX)) {
+            return null;
+        }
+        String sessionId = destination.substring(FRAME_TOPIC_PREFIX.length());
+        return sessionId.isEmpty() || sessionId.indexOf('/') >= 0 ? null : sessionId;
+    }
+}
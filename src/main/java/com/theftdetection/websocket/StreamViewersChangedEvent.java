@@ -0,0 +1,20 @@
+package com.theftdetection.websocket;
+
+/**
+ * Published by {@link StreamViewerRegistry} when a camera session gains its first viewer
+ * or loses its last one.
+ */
+public class StreamViewersChangedEvent {
+
+    private final String sessionId;
+    private final boolean watched;
+
+    public StreamViewersChangedEvent(String sessionId, boolean watched) {
+        this.sessionId = sessionId;
+        this.watched = watched;
+    }
+
+    public String getSessionId() { return sessionId; }
+
+    public boolean isWatched() { return watched; }
+}
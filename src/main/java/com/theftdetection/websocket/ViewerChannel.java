@@ -0,0 +1,147 @@
+package com.theftdetection.websocket;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Latest-frame-wins delivery of one camera's frames to one viewer socket.
+ *
+ * At most one frame waits per viewer. A newer frame replaces it, and the stale one is
+ * counted as dropped. Writes run on the relay executor, so a slow viewer delays only
+ * itself and never the camera or the other viewers. It costs at most one pending frame
+ * of memory instead of a growing backlog.
+ */
+class ViewerChannel {
+
+    private final WebSocketSession session;
+    private final Object sendLock;
+    private final Executor executor;
+    private final FrameRelayStats.SessionStats stats;
+    private final int sendTimeLimit;
+
+    private final AtomicReference<Pending> pending = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long sendStartTime;
+    private volatile boolean closed;
+
+    /**
+     * @param sendLock guards writes to {@code session}; shared with anything else that
+     *                 writes to the same socket
+     */
+    ViewerChannel(WebSocketSession session, Object sendLock, Executor executor,
+                  FrameRelayStats.SessionStats stats, int sendTimeLimit) {
+        this.session = session;
+        this.sendLock = sendLock;
+        this.executor = executor;
+        this.stats = stats;
+        this.sendTimeLimit = sendTimeLimit;
+    }
+
+    String getId() {
+        return session.getId();
+    }
+
+    boolean isOpen() {
+        return !closed && session.isOpen();
+    }
+
+    /**
+     * Queues {@code message} in place of any frame still waiting. {@code onDone} runs once
+     * the message has been written or dropped.
+     */
+    void offer(WebSocketMessage<?> message, Runnable onDone) {
+        if (!isOpen()) {
+            onDone.run();
+            return;
+        }
+        long started = sendStartTime;
+        if (started != 0 && System.currentTimeMillis() - started > sendTimeLimit) {
+            onDone.run();
+            close(CloseStatus.SESSION_NOT_RELIABLE);
+            return;
+        }
+
+        Pending replaced = pending.getAndSet(new Pending(message, onDone, System.nanoTime()));
+        if (replaced != null) {
+            stats.recordDropped();
+            replaced.onDone.run();
+        }
+        if (closed) {
+            // Lost a race with close(); make sure nothing is left holding a frame
+            Pending left = pending.getAndSet(null);
+            if (left != null) {
+                left.onDone.run();
+            }
+            return;
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                close(CloseStatus.SERVICE_OVERLOAD);
+            }
+        }
+    }
+
+    private void drain() {
+        Pending next;
+        while (!closed && (next = pending.getAndSet(null)) != null) {
+            try {
+                synchronized (sendLock) {
+                    sendStartTime = System.currentTimeMillis();
+                    session.sendMessage(next.message);
+                }
+                stats.recordDelivered(System.nanoTime() - next.offeredAt);
+            } catch (IOException | IllegalStateException e) {
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+            } finally {
+                sendStartTime = 0;
+                next.onDone.run();
+            }
+        }
+        scheduled.set(false);
+        // A frame may have arrived between the last poll and clearing the flag
+        if (!closed && pending.get() != null) {
+            schedule();
+        }
+    }
+
+    void close(CloseStatus status) {
+        if (!discard()) {
+            return;
+        }
+        try {
+            session.close(status);
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * Stops delivery and drops any waiting frame but leaves the socket open, for a viewer
+     * that stopped watching this camera. Returns false if the channel was already closed.
+     */
+    boolean discard() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        Pending left = pending.getAndSet(null);
+        if (left != null) {
+            left.onDone.run();
+        }
+        return true;
+    }
+
+    private record Pending(WebSocketMessage<?> message, Runnable onDone, long offeredAt) {}
+}
@@ -0,0 +1,219 @@
+package com.theftdetection.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RangeFileSenderTest {
+
+    private static final String CONTENT = "0123456789";
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = directory.resolve("video.webm");
+        Files.writeString(file, CONTENT, StandardCharsets.US_ASCII);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(LAST_MODIFIED));
+        request = new MockHttpServletRequest("GET", "/api/camera/download/video/video.webm");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    void sendsWholeFileWithoutRange() throws Exception {
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(etag());
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).startsWith("inline");
+    }
+
+    @Test
+    void sendsClosedRange() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        send();
+
+        assertPartial("bytes 2-5/10", "2345");
+    }
+
+    @Test
+    void sendsOpenEndedRange() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=7-");
+        send();
+
+        assertPartial("bytes 7-9/10", "789");
+    }
+
+    @Test
+    void sendsSuffixRange() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        send();
+
+        assertPartial("bytes 7-9/10", "789");
+    }
+
+    @Test
+    void clampsRangeEndToFileLength() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=8-100");
+        send();
+
+        assertPartial("bytes 8-9/10", "89");
+    }
+
+    @Test
+    void rejectsRangeStartingPastEndOfFile() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void ignoresMalformedRange() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=five-");
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void sendsWholeFileForMultipleRanges() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,4-5");
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void honoursRangeWhenIfRangeMatchesEtag() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, etag());
+        send();
+
+        assertPartial("bytes 2-5/10", "2345");
+    }
+
+    @Test
+    void sendsWholeFileWhenIfRangeEtagIsStale() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"a-1\"");
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void sendsWholeFileForWeakIfRangeEtag() throws Exception {
+        // If-Range requires a strong comparison, so a weak tag never matches
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "W/" + etag());
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void honoursRangeWhenIfRangeDateIsCurrent() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED));
+        send();
+
+        assertPartial("bytes 2-5/10", "2345");
+    }
+
+    @Test
+    void sendsWholeFileWhenIfRangeDateIsOlder() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED - 60_000));
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void answersNotModifiedForMatchingEtag() throws Exception {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag());
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void sendsOnlyHeadersForHead() throws Exception {
+        request.setMethod("HEAD");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentLengthLong()).isEqualTo(4);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void handsRangeToContainerSendfile() throws Exception {
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(file.toAbsolutePath().toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(2L);
+        // Tomcat's end is exclusive
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(6L);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void answersNotFoundForMissingFile() throws Exception {
+        RangeFileSender.send(directory.resolve("missing.webm"), "video/webm", false, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(404);
+    }
+
+    private void send() throws Exception {
+        RangeFileSender.send(file, "video/webm", false, request, response);
+    }
+
+    private void assertPartial(String contentRange, String body) throws Exception {
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo(contentRange);
+        assertThat(response.getContentLengthLong()).isEqualTo(body.length());
+        assertThat(response.getContentAsString()).isEqualTo(body);
+    }
+
+    private static String etag() {
+        return "\"" + Long.toHexString(CONTENT.length()) + "-" + Long.toHexString(LAST_MODIFIED) + "\"";
+    }
+
+    private static String httpDate(long millis) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setDate(HttpHeaders.IF_RANGE, millis);
+        return headers.getFirst(HttpHeaders.IF_RANGE);
+    }
+}
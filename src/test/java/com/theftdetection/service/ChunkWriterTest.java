@@ -0,0 +1,120 @@
+package com.theftdetection.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChunkWriterTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private final List<Long> positions = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = Files.createFile(directory.resolve("upload.part"));
+    }
+
+    @Test
+    void writesChunksAtTheirOffsets() throws Exception {
+        write(0, "hello ");
+        write(6, "world");
+
+        assertThat(contents()).isEqualTo("hello world");
+        assertThat(positions).containsExactly(6L, 11L);
+    }
+
+    @Test
+    void overlappingResendRewritesTheSameBytes() throws Exception {
+        write(0, "0123456789");
+        // The client lost the acknowledgement and resends from an earlier offset
+        write(5, "56789abcde");
+
+        assertThat(contents()).isEqualTo("0123456789abcde");
+        assertThat(positions).containsExactly(10L, 15L);
+    }
+
+    @Test
+    void shorterResendKeepsLaterBytes() throws Exception {
+        write(0, "0123456789");
+        write(2, "234");
+
+        // Positional writes never truncate; callers keep the highest acknowledged offset
+        assertThat(contents()).isEqualTo("0123456789");
+        assertThat(positions).containsExactly(10L, 5L);
+    }
+
+    @Test
+    void writesBodiesLargerThanTheBuffer() throws Exception {
+        byte[] body = new byte[200 * 1024 + 17];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        ChunkWriter.write(file, 0, new ByteArrayInputStream(body), Long.MAX_VALUE, positions::add);
+
+        assertThat(Files.readAllBytes(file)).isEqualTo(body);
+        assertThat(positions).hasSizeGreaterThan(1).last().isEqualTo((long) body.length);
+    }
+
+    @Test
+    void rejectsBodyPastTheLimit() throws Exception {
+        write(0, "01234");
+
+        assertThatThrownBy(() -> ChunkWriter.write(file, 5, stream("56789"), 8, positions::add))
+                .isInstanceOf(IOException.class);
+        assertThat(contents()).isEqualTo("01234");
+        assertThat(positions).containsExactly(5L);
+    }
+
+    @Test
+    void reportsProgressBeforeTheBodyFails() throws Exception {
+        InputStream failing = new InputStream() {
+            private final InputStream data = stream("partial");
+
+            @Override
+            public int read() throws IOException {
+                return data.read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = data.read(buffer, offset, length);
+                if (read == -1) {
+                    throw new IOException("Connection reset");
+                }
+                return read;
+            }
+        };
+
+        assertThatThrownBy(() -> ChunkWriter.write(file, 0, failing, Long.MAX_VALUE, positions::add))
+                .hasMessage("Connection reset");
+        assertThat(contents()).isEqualTo("partial");
+        assertThat(positions).containsExactly(7L);
+    }
+
+    private void write(long offset, String body) throws IOException {
+        ChunkWriter.write(file, offset, stream(body), Long.MAX_VALUE, positions::add);
+    }
+
+    private String contents() throws IOException {
+        return Files.readString(file, StandardCharsets.US_ASCII);
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.US_ASCII));
+    }
+}
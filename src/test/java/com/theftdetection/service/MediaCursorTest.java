@@ -0,0 +1,45 @@
+package com.theftdetection.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MediaCursorTest {
+
+    @Test
+    void decodesWhatItEncodes() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 5, 14, 7, 9, 123_456_000);
+        MediaCursor cursor = MediaCursor.decode(new MediaCursor(timestamp, 42L).encode());
+
+        assertThat(cursor.getTimestamp()).isEqualTo(timestamp);
+        assertThat(cursor.getId()).isEqualTo(42L);
+    }
+
+    @Test
+    void encodesUrlSafelyWithoutPadding() {
+        String encoded = new MediaCursor(LocalDateTime.of(2024, 1, 1, 0, 0), 7L).encode();
+
+        assertThat(encoded).doesNotContain("+", "/", "=");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "%%%", "not base64!"})
+    void rejectsCursorThatIsNotBase64(String cursor) {
+        assertThatThrownBy(() -> MediaCursor.decode(cursor)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2024-01-01T00:00", "2024-01-01T00:00|", "yesterday|5", "|5", "2024-01-01T00:00|five"})
+    void rejectsMalformedCursor(String raw) {
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> MediaCursor.decode(cursor)).isInstanceOf(IllegalArgumentException.class);
+    }
+}